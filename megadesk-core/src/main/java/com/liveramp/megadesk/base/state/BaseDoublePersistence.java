@@ -0,0 +1,53 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.state;
+
+import com.liveramp.megadesk.core.state.DoublePersistence;
+import com.liveramp.megadesk.core.state.MultiPersistenceTransaction;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+
+public abstract class BaseDoublePersistence extends BasePersistence<Double> implements DoublePersistence {
+
+  @Override
+  public Double read() {
+    return readDouble();
+  }
+
+  @Override
+  public void write(Double value) {
+    writeDouble(checkNotNull(value));
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, Double value) {
+    writeDoubleInTransaction(transaction, checkNotNull(value));
+  }
+
+  @Override
+  public void writeDoubleInMultiTransaction(MultiPersistenceTransaction transaction, double value) {
+    writeDoubleInTransaction(transactionIn(transaction), value);
+  }
+
+  public abstract void writeDoubleInTransaction(PersistenceTransaction transaction, double value);
+
+  private static double checkNotNull(Double value) {
+    if (value == null) {
+      throw new IllegalArgumentException("A double persistence cannot hold null");
+    }
+    return value;
+  }
+}
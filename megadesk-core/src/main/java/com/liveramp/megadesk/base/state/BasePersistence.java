@@ -24,12 +24,16 @@ public abstract class BasePersistence<VALUE> implements Persistence<VALUE> {
 
   @Override
   public void writeInMultiTransaction(MultiPersistenceTransaction transaction, VALUE value) {
+    writeInTransaction(transactionIn(transaction), value);
+  }
+
+  protected PersistenceTransaction transactionIn(MultiPersistenceTransaction transaction) {
     PersistenceTransaction persistenceTransaction = transaction.getTransactionFor(transactionCategory());
     if (persistenceTransaction == null) {
       persistenceTransaction = newTransaction();
       transaction.startTransactionFor(transactionCategory(), persistenceTransaction);
     }
-    writeInTransaction(persistenceTransaction, value);
+    return persistenceTransaction;
   }
 
   public abstract Object transactionCategory();
@@ -0,0 +1,60 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.state;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.liveramp.megadesk.core.state.ChangeListener;
+import com.liveramp.megadesk.core.state.Subscription;
+
+public class ChangeNotifier {
+
+  private final List<ChangeListener> listeners;
+  private final AtomicLong version;
+
+  public ChangeNotifier() {
+    this.listeners = new CopyOnWriteArrayList<ChangeListener>();
+    this.version = new AtomicLong();
+  }
+
+  public Subscription subscribe(final ChangeListener listener) {
+    listeners.add(listener);
+    return new Subscription() {
+      @Override
+      public void cancel() {
+        listeners.remove(listener);
+      }
+    };
+  }
+
+  public boolean hasListeners() {
+    return !listeners.isEmpty();
+  }
+
+  public long version() {
+    return version.get();
+  }
+
+  public void changed() {
+    version.incrementAndGet();
+    for (ChangeListener listener : listeners) {
+      listener.changed();
+    }
+  }
+}
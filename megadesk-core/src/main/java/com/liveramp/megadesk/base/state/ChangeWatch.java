@@ -0,0 +1,97 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.state;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.core.state.ChangeListener;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.Subscription;
+import com.liveramp.megadesk.core.state.WatchablePersistence;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.VariableDependency;
+
+// Records changes to the variables of a dependency, so that callers can wait for one instead of polling. Create the
+// watch before reading the variables, so that no change is missed. When some variable cannot be watched, every poll
+// reports a change and waiting only yields, which amounts to polling.
+public class ChangeWatch implements ChangeListener {
+
+  private final List<Subscription> subscriptions;
+  private final boolean watchable;
+  private boolean changed;
+
+  public ChangeWatch(Dependency dependency) {
+    this.subscriptions = Lists.newArrayList();
+    boolean watchable = true;
+    for (VariableDependency variableDependency : dependency.all()) {
+      Persistence persistence = variableDependency.variable().driver().persistence();
+      if (persistence instanceof WatchablePersistence) {
+        subscriptions.add(((WatchablePersistence)persistence).subscribe(this));
+      } else {
+        watchable = false;
+      }
+    }
+    this.watchable = watchable;
+  }
+
+  @Override
+  public synchronized void changed() {
+    changed = true;
+    notifyAll();
+  }
+
+  public boolean isWatchable() {
+    return watchable;
+  }
+
+  // Whether a change happened since the watch was created or last polled
+  public synchronized boolean poll() {
+    boolean result = changed || !watchable;
+    changed = false;
+    return result;
+  }
+
+  // Waits for a change, returns false on timeout
+  public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+    if (!watchable) {
+      Thread.yield();
+      return true;
+    }
+    synchronized (this) {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!changed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      changed = false;
+      return true;
+    }
+  }
+
+  public void close() {
+    for (Subscription subscription : subscriptions) {
+      subscription.cancel();
+    }
+    subscriptions.clear();
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.state;
+
+import com.liveramp.megadesk.core.state.ChangeListener;
+import com.liveramp.megadesk.core.state.LongPersistence;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.Subscription;
+import com.liveramp.megadesk.core.state.WatchablePersistence;
+
+public class InMemoryLongPersistence extends BaseLongPersistence implements LongPersistence, WatchablePersistence {
+
+  private final ChangeNotifier notifier = new ChangeNotifier();
+  private volatile long value;
+
+  public InMemoryLongPersistence() {
+    this(0);
+  }
+
+  public InMemoryLongPersistence(long value) {
+    this.value = value;
+  }
+
+  @Override
+  public long readLong() {
+    return value;
+  }
+
+  @Override
+  public void writeLong(long value) {
+    this.value = value;
+    notifier.changed();
+  }
+
+  @Override
+  public Subscription subscribe(ChangeListener listener) {
+    return notifier.subscribe(listener);
+  }
+
+  @Override
+  public long version() {
+    return notifier.version();
+  }
+
+  // Shares its transactions with InMemoryPersistence, so that in-memory variables of any type commit together
+  @Override
+  public Object transactionCategory() {
+    return InMemoryPersistence.class;
+  }
+
+  @Override
+  public PersistenceTransaction newTransaction() {
+    return new InMemoryPersistenceTransaction();
+  }
+
+  @Override
+  public void writeLongInTransaction(PersistenceTransaction transaction, long value) {
+    ((InMemoryPersistenceTransaction)transaction).write(this, value);
+  }
+}
@@ -16,11 +16,15 @@
 
 package com.liveramp.megadesk.base.state;
 
+import com.liveramp.megadesk.core.state.ChangeListener;
 import com.liveramp.megadesk.core.state.Persistence;
 import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.Subscription;
+import com.liveramp.megadesk.core.state.WatchablePersistence;
 
-public class InMemoryPersistence<VALUE> extends BasePersistence<VALUE> implements Persistence<VALUE> {
+public class InMemoryPersistence<VALUE> extends BasePersistence<VALUE> implements Persistence<VALUE>, WatchablePersistence {
 
+  private final ChangeNotifier notifier = new ChangeNotifier();
   private VALUE value;
 
   public InMemoryPersistence() {
@@ -39,6 +43,17 @@ public class InMemoryPersistence<VALUE> extends BasePersistence<VALUE> implement
   @Override
   public void write(VALUE value) {
     this.value = value;
+    notifier.changed();
+  }
+
+  @Override
+  public Subscription subscribe(ChangeListener listener) {
+    return notifier.subscribe(listener);
+  }
+
+  @Override
+  public long version() {
+    return notifier.version();
   }
 
   @Override
@@ -71,11 +71,23 @@ public class MultiLock implements Lock {
     acquiredLocks.add(lock);
   }
 
+  // Every lock is released even if releasing one of them fails, the first failure is then rethrown
   private static void unlockAndRemember(Set<Lock> acquiredLocks) {
+    RuntimeException failure = null;
     Iterator<Lock> lockIterator = acquiredLocks.iterator();
     while (lockIterator.hasNext()) {
-      lockIterator.next().unlock();
+      Lock lock = lockIterator.next();
       lockIterator.remove();
+      try {
+        lock.unlock();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
     }
   }
 }
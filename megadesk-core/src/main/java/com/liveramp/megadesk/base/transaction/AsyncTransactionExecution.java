@@ -0,0 +1,200 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.transaction;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import com.liveramp.megadesk.core.state.AsyncLock;
+import com.liveramp.megadesk.core.state.AsyncPersistence;
+import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.core.transaction.VariableDependency;
+
+// Acquires locks in order, reads all variables, runs the transaction, commits and releases the locks,
+// each step being started by the completion of the previous one. All locks need to be asynchronous.
+class AsyncTransactionExecution<V> {
+
+  private final Transaction<V> transaction;
+  private final Dependency dependency;
+  private final Executor executor;
+  private final List<Lock> locks;
+  private final SettableFuture<V> result;
+  private int numAcquiredLocks;
+
+  AsyncTransactionExecution(Transaction<V> transaction, Dependency dependency, Executor executor) {
+    this.transaction = transaction;
+    this.dependency = dependency;
+    this.executor = executor;
+    this.locks = BaseTransactionExecution.orderedLocks(dependency);
+    this.result = SettableFuture.create();
+    this.numAcquiredLocks = 0;
+  }
+
+  ListenableFuture<V> result() {
+    return result;
+  }
+
+  void start() {
+    lockNext();
+  }
+
+  private void lockNext() {
+    if (numAcquiredLocks == locks.size()) {
+      read();
+      return;
+    }
+    Futures.addCallback(lock(locks.get(numAcquiredLocks)), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void value) {
+        numAcquiredLocks++;
+        lockNext();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        fail(t);
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
+
+  private void read() {
+    List<ListenableFuture<Object>> values = Lists.newArrayList();
+    for (VariableDependency variableDependency : dependency.all()) {
+      values.add(read(variableDependency.variable().driver().persistence()));
+    }
+    Futures.addCallback(Futures.allAsList(values), new FutureCallback<List<Object>>() {
+      @Override
+      public void onSuccess(List<Object> values) {
+        run(values);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        fail(t);
+      }
+    }, executor);
+  }
+
+  private void run(List<Object> values) {
+    final V value;
+    ListenableFuture<Void> commit;
+    try {
+      Context context = new BaseContext(dependency, values);
+      value = transaction.run(context);
+      commit = BaseTransactionExecution.persistenceTransaction(dependency, context, null).commitAsync();
+    } catch (Exception e) {
+      fail(e);
+      return;
+    }
+    Futures.addCallback(commit, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void ignored) {
+        release(null, value);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        fail(t);
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
+
+  private void fail(Throwable t) {
+    release(t, null);
+  }
+
+  // The result is only completed once every acquired lock has been released
+  private void release(final Throwable failure, final V value) {
+    List<ListenableFuture<Void>> unlocks = Lists.newArrayList();
+    for (int i = numAcquiredLocks - 1; i >= 0; --i) {
+      unlocks.add(unlock(locks.get(i)));
+    }
+    numAcquiredLocks = 0;
+    Futures.addCallback(Futures.allAsList(unlocks), new FutureCallback<List<Void>>() {
+      @Override
+      public void onSuccess(List<Void> ignored) {
+        complete();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        if (failure == null) {
+          result.setException(t);
+        } else {
+          complete();
+        }
+      }
+
+      private void complete() {
+        if (failure == null) {
+          result.set(value);
+        } else {
+          result.setException(failure);
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
+
+  private static ListenableFuture<Void> lock(Lock lock) {
+    return ((AsyncLock)lock).lockAsync();
+  }
+
+  private static ListenableFuture<Void> unlock(Lock lock) {
+    return ((AsyncLock)lock).unlockAsync();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ListenableFuture<Object> read(final Persistence persistence) {
+    if (persistence instanceof AsyncPersistence) {
+      return ((AsyncPersistence<Object>)persistence).readAsync();
+    }
+    return submit(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return persistence.read();
+      }
+    }, executor);
+  }
+
+  static boolean supports(Dependency dependency) {
+    for (Lock lock : BaseTransactionExecution.orderedLocks(dependency)) {
+      if (!(lock instanceof AsyncLock)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static <T> ListenableFuture<T> submit(Callable<T> callable, Executor executor) {
+    ListenableFutureTask<T> task = ListenableFutureTask.create(callable);
+    executor.execute(task);
+    return task;
+  }
+}
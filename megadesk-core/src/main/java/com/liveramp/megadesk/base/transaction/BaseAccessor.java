@@ -38,13 +38,13 @@ public class BaseAccessor<VALUE> implements Accessor<VALUE> {
 
   @Override
   public VALUE read() {
-    ensureDependencyType(DependencyType.READ, DependencyType.WRITE);
+    ensureDependencyType(dependencyType, DependencyType.READ, DependencyType.WRITE);
     return persistence.read();
   }
 
   @Override
   public void write(VALUE value) {
-    ensureDependencyType(DependencyType.WRITE);
+    ensureDependencyType(dependencyType, DependencyType.WRITE);
     persistence.write(value);
     written = true;
   }
@@ -54,7 +54,7 @@ public class BaseAccessor<VALUE> implements Accessor<VALUE> {
     return written;
   }
 
-  private void ensureDependencyType(DependencyType... dependencyTypes) {
+  static void ensureDependencyType(DependencyType dependencyType, DependencyType... dependencyTypes) {
     if (!Arrays.asList(dependencyTypes).contains(dependencyType)) {
       throw new IllegalArgumentException(); // TODO message
     }
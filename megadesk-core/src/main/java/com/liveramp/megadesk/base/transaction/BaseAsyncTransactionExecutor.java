@@ -0,0 +1,63 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.transaction;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.liveramp.megadesk.core.transaction.AsyncTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.Binding;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+
+// Executes transactions without blocking the calling thread. When all locks are asynchronous, no thread waits
+// on them and reads and commits are asynchronous where supported. Since other locks can be bound to the thread
+// that acquired them, transactions using them are executed synchronously by one of the executor's threads.
+public class BaseAsyncTransactionExecutor implements AsyncTransactionExecutor {
+
+  private final Executor executor;
+  private final TransactionExecutor synchronousExecutor;
+
+  public BaseAsyncTransactionExecutor(Executor executor) {
+    this.executor = executor;
+    this.synchronousExecutor = new BaseTransactionExecutor();
+  }
+
+  @Override
+  public <V> ListenableFuture<V> executeAsync(Transaction<V> transaction) {
+    return executeAsync(transaction, null);
+  }
+
+  @Override
+  public <V> ListenableFuture<V> executeAsync(final Transaction<V> transaction, final Binding binding) {
+    Dependency dependency = BaseTransactionExecutor.bindDependency(transaction.dependency(), binding);
+    if (!AsyncTransactionExecution.supports(dependency)) {
+      return AsyncTransactionExecution.submit(new Callable<V>() {
+        @Override
+        public V call() throws Exception {
+          return synchronousExecutor.execute(transaction, binding);
+        }
+      }, executor);
+    }
+    AsyncTransactionExecution<V> execution = new AsyncTransactionExecution<V>(transaction, dependency, executor);
+    execution.start();
+    return execution.result();
+  }
+}
@@ -16,16 +16,22 @@
 
 package com.liveramp.megadesk.base.transaction;
 
+import java.util.List;
 import java.util.Map;
 
 import com.google.common.collect.Maps;
 
+import com.liveramp.megadesk.core.state.DoublePersistence;
+import com.liveramp.megadesk.core.state.LongPersistence;
+import com.liveramp.megadesk.core.state.Persistence;
 import com.liveramp.megadesk.core.state.Reference;
 import com.liveramp.megadesk.core.state.Variable;
 import com.liveramp.megadesk.core.transaction.Accessor;
 import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Dependency;
 import com.liveramp.megadesk.core.transaction.DependencyType;
+import com.liveramp.megadesk.core.transaction.DoubleAccessor;
+import com.liveramp.megadesk.core.transaction.LongAccessor;
 import com.liveramp.megadesk.core.transaction.VariableDependency;
 import com.liveramp.megadesk.utils.FormatUtils;
 
@@ -40,8 +46,36 @@ public class BaseContext implements Context {
     }
   }
 
+  // Binds values that have already been read, in the order of the dependency's variables
+  public BaseContext(Dependency dependency, List<Object> values) {
+    bindings = Maps.newHashMap();
+    List<VariableDependency> variableDependencies = dependency.all();
+    for (int i = 0; i < variableDependencies.size(); ++i) {
+      addBinding(variableDependencies.get(i).variable(), variableDependencies.get(i).type(), values.get(i));
+    }
+  }
+
+  private void addBinding(Variable variable, DependencyType dependencyType, Object value) {
+    Persistence persistence = variable.driver().persistence();
+    if (persistence instanceof LongPersistence) {
+      bindings.put(variable.reference(), new BaseLongAccessor((Long)value, dependencyType));
+    } else if (persistence instanceof DoublePersistence) {
+      bindings.put(variable.reference(), new BaseDoubleAccessor((Double)value, dependencyType));
+    } else {
+      bindings.put(variable.reference(), new BaseAccessor<Object>(value, dependencyType));
+    }
+  }
+
   private <VALUE> void addBinding(Variable<VALUE> variable, DependencyType dependencyType) {
-    bindings.put(variable.reference(), new BaseAccessor<VALUE>(variable.driver().persistence().read(), dependencyType));
+    Persistence<VALUE> persistence = variable.driver().persistence();
+    // Primitive values are bound without boxing
+    if (persistence instanceof LongPersistence) {
+      bindings.put(variable.reference(), new BaseLongAccessor(((LongPersistence)persistence).readLong(), dependencyType));
+    } else if (persistence instanceof DoublePersistence) {
+      bindings.put(variable.reference(), new BaseDoubleAccessor(((DoublePersistence)persistence).readDouble(), dependencyType));
+    } else {
+      bindings.put(variable.reference(), new BaseAccessor<VALUE>(persistence.read(), dependencyType));
+    }
   }
 
   @Override
@@ -77,6 +111,66 @@ public class BaseContext implements Context {
     write(variable.reference(), value);
   }
 
+  @Override
+  public long readLong(Reference<Long> reference) {
+    Accessor<Long> accessor = accessor(reference);
+    if (accessor instanceof LongAccessor) {
+      return ((LongAccessor)accessor).readLong();
+    } else {
+      return accessor.read();
+    }
+  }
+
+  @Override
+  public long readLong(Variable<Long> variable) {
+    return readLong(variable.reference());
+  }
+
+  @Override
+  public void writeLong(Reference<Long> reference, long value) {
+    Accessor<Long> accessor = accessor(reference);
+    if (accessor instanceof LongAccessor) {
+      ((LongAccessor)accessor).writeLong(value);
+    } else {
+      accessor.write(value);
+    }
+  }
+
+  @Override
+  public void writeLong(Variable<Long> variable, long value) {
+    writeLong(variable.reference(), value);
+  }
+
+  @Override
+  public double readDouble(Reference<Double> reference) {
+    Accessor<Double> accessor = accessor(reference);
+    if (accessor instanceof DoubleAccessor) {
+      return ((DoubleAccessor)accessor).readDouble();
+    } else {
+      return accessor.read();
+    }
+  }
+
+  @Override
+  public double readDouble(Variable<Double> variable) {
+    return readDouble(variable.reference());
+  }
+
+  @Override
+  public void writeDouble(Reference<Double> reference, double value) {
+    Accessor<Double> accessor = accessor(reference);
+    if (accessor instanceof DoubleAccessor) {
+      ((DoubleAccessor)accessor).writeDouble(value);
+    } else {
+      accessor.write(value);
+    }
+  }
+
+  @Override
+  public void writeDouble(Variable<Double> variable, double value) {
+    writeDouble(variable.reference(), value);
+  }
+
   @Override
   public <VALUE> boolean written(Reference<VALUE> reference) {
     return accessor(reference).written();
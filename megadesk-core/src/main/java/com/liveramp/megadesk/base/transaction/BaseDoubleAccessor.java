@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.transaction;
+
+import com.liveramp.megadesk.core.transaction.DependencyType;
+import com.liveramp.megadesk.core.transaction.DoubleAccessor;
+import com.liveramp.megadesk.utils.FormatUtils;
+
+public class BaseDoubleAccessor implements DoubleAccessor {
+
+  private final DependencyType dependencyType;
+  private double value;
+  private boolean written;
+
+  public BaseDoubleAccessor(double value, DependencyType dependencyType) {
+    this.dependencyType = dependencyType;
+    this.value = value;
+    this.written = false;
+  }
+
+  @Override
+  public double readDouble() {
+    BaseAccessor.ensureDependencyType(dependencyType, DependencyType.READ, DependencyType.WRITE);
+    return value;
+  }
+
+  @Override
+  public void writeDouble(double value) {
+    BaseAccessor.ensureDependencyType(dependencyType, DependencyType.WRITE);
+    this.value = value;
+    written = true;
+  }
+
+  @Override
+  public Double read() {
+    return readDouble();
+  }
+
+  @Override
+  public void write(Double value) {
+    writeDouble(value);
+  }
+
+  @Override
+  public boolean written() {
+    return written;
+  }
+
+  @Override
+  public String toString() {
+    return FormatUtils.formatToString(this, dependencyType.toString());
+  }
+}
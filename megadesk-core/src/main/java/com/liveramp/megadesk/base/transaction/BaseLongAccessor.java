@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.base.transaction;
+
+import com.liveramp.megadesk.core.transaction.DependencyType;
+import com.liveramp.megadesk.core.transaction.LongAccessor;
+import com.liveramp.megadesk.utils.FormatUtils;
+
+public class BaseLongAccessor implements LongAccessor {
+
+  private final DependencyType dependencyType;
+  private long value;
+  private boolean written;
+
+  public BaseLongAccessor(long value, DependencyType dependencyType) {
+    this.dependencyType = dependencyType;
+    this.value = value;
+    this.written = false;
+  }
+
+  @Override
+  public long readLong() {
+    BaseAccessor.ensureDependencyType(dependencyType, DependencyType.READ, DependencyType.WRITE);
+    return value;
+  }
+
+  @Override
+  public void writeLong(long value) {
+    BaseAccessor.ensureDependencyType(dependencyType, DependencyType.WRITE);
+    this.value = value;
+    written = true;
+  }
+
+  @Override
+  public Long read() {
+    return readLong();
+  }
+
+  @Override
+  public void write(Long value) {
+    writeLong(value);
+  }
+
+  @Override
+  public boolean written() {
+    return written;
+  }
+
+  @Override
+  public String toString() {
+    return FormatUtils.formatToString(this, dependencyType.toString());
+  }
+}
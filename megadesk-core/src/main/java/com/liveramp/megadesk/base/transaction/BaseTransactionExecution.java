@@ -18,15 +18,22 @@ package com.liveramp.megadesk.base.transaction;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.collect.Lists;
 
 import com.liveramp.megadesk.base.state.MultiLock;
+import com.liveramp.megadesk.core.state.DoublePersistence;
 import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.core.state.LongPersistence;
 import com.liveramp.megadesk.core.state.MultiPersistenceTransaction;
+import com.liveramp.megadesk.core.state.Persistence;
 import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Accessor;
 import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.DoubleAccessor;
+import com.liveramp.megadesk.core.transaction.LongAccessor;
 import com.liveramp.megadesk.core.transaction.TransactionExecution;
 import com.liveramp.megadesk.core.transaction.VariableDependency;
 
@@ -43,6 +50,16 @@ public class BaseTransactionExecution implements TransactionExecution {
   private Context context;
   private State state = State.STANDBY;
   private Lock lock;
+  private final ExecutorService commitExecutor;
+
+  public BaseTransactionExecution() {
+    this(null);
+  }
+
+  // Persistence transactions of different categories are committed concurrently by the given executor
+  public BaseTransactionExecution(ExecutorService commitExecutor) {
+    this.commitExecutor = commitExecutor;
+  }
 
   @Override
   public Context begin(Dependency dependency) {
@@ -76,19 +93,12 @@ public class BaseTransactionExecution implements TransactionExecution {
   public void commit() {
     ensureState(State.RUNNING);
     // Write in a multi persistence transaction
-    MultiPersistenceTransaction multiPersistenceTransaction = new MultiPersistenceTransaction();
-    for (Variable variable : dependency.writes()) {
-      // Only write variables that have been written to the context
-      if (context.written(variable)) {
-        Object value = context.read(variable);
-        variable.driver().persistence().writeInMultiTransaction(multiPersistenceTransaction, value);
-      }
-    }
+    MultiPersistenceTransaction multiPersistenceTransaction = persistenceTransaction(dependency, context, commitExecutor);
     // Commit multi persistence transaction
     multiPersistenceTransaction.commit();
-    // Release execution locks
-    lock.unlock();
+    // The data is committed at this point, even if releasing execution locks fails
     state = State.COMMITTED;
+    lock.unlock();
   }
 
   @Override
@@ -98,12 +108,34 @@ public class BaseTransactionExecution implements TransactionExecution {
     state = State.ABORTED;
   }
 
+  static MultiPersistenceTransaction persistenceTransaction(Dependency dependency, Context context, ExecutorService commitExecutor) {
+    MultiPersistenceTransaction result = new MultiPersistenceTransaction(commitExecutor);
+    for (Variable variable : dependency.writes()) {
+      // Only write variables that have been written to the context
+      if (context.written(variable)) {
+        write(result, variable.driver().persistence(), context.accessor(variable));
+      }
+    }
+    return result;
+  }
+
+  // Primitive values are written without boxing
+  private static void write(MultiPersistenceTransaction transaction, Persistence persistence, Accessor accessor) {
+    if (persistence instanceof LongPersistence && accessor instanceof LongAccessor) {
+      ((LongPersistence)persistence).writeLongInMultiTransaction(transaction, ((LongAccessor)accessor).readLong());
+    } else if (persistence instanceof DoublePersistence && accessor instanceof DoubleAccessor) {
+      ((DoublePersistence)persistence).writeDoubleInMultiTransaction(transaction, ((DoubleAccessor)accessor).readDouble());
+    } else {
+      persistence.writeInMultiTransaction(transaction, accessor.read());
+    }
+  }
+
   private static Lock dependencyLock(Dependency dependency) {
     return new MultiLock(orderedLocks(dependency));
   }
 
   // Locks are globally ordered to prevent deadlocks
-  private static List<Lock> orderedLocks(Dependency dependency) {
+  static List<Lock> orderedLocks(Dependency dependency) {
     List<VariableDependency> all = Lists.newArrayList(dependency.all());
     Collections.sort(all);
     List<Lock> result = Lists.newArrayList();
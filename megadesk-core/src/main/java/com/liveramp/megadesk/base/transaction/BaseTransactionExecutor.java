@@ -17,12 +17,16 @@
 package com.liveramp.megadesk.base.transaction;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 
 import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.ChangeWatch;
 import com.liveramp.megadesk.core.state.Variable;
 import com.liveramp.megadesk.core.transaction.Binding;
+import com.liveramp.megadesk.core.transaction.Condition;
 import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Dependency;
 import com.liveramp.megadesk.core.transaction.TransactionExecutionResult;
@@ -33,6 +37,20 @@ import com.liveramp.megadesk.core.transaction.VariableDependency;
 
 public class BaseTransactionExecutor implements TransactionExecutor {
 
+  // Upper bound on each wait, so that a missed notification only delays re-evaluation
+  private static final long CONDITION_WAIT_MS = 1000;
+
+  private final ExecutorService commitExecutor;
+
+  public BaseTransactionExecutor() {
+    this(null);
+  }
+
+  // Variables of different persistence categories are committed concurrently by the given executor
+  public BaseTransactionExecutor(ExecutorService commitExecutor) {
+    this.commitExecutor = commitExecutor;
+  }
+
   @Override
   public <V> V execute(Transaction<V> transaction) throws Exception {
     return execute(transaction, null);
@@ -45,7 +63,7 @@ public class BaseTransactionExecutor implements TransactionExecutor {
 
   @Override
   public <V> V execute(Transaction<V> transaction, Binding binding) throws Exception {
-    TransactionExecution transactionExecution = new BaseTransactionExecution();
+    TransactionExecution transactionExecution = new BaseTransactionExecution(commitExecutor);
     Dependency dependency = bindDependency(transaction.dependency(), binding);
     Context context = transactionExecution.begin(dependency);
     try {
@@ -60,7 +78,7 @@ public class BaseTransactionExecutor implements TransactionExecutor {
 
   @Override
   public <V> TransactionExecutionResult<V> tryExecute(Transaction<V> transaction, Binding binding) throws Exception {
-    TransactionExecution transactionExecution = new BaseTransactionExecution();
+    TransactionExecution transactionExecution = new BaseTransactionExecution(commitExecutor);
     Dependency dependency = bindDependency(transaction.dependency(), binding);
     Context context = transactionExecution.tryBegin(dependency);
     if (context != null) {
@@ -77,12 +95,60 @@ public class BaseTransactionExecutor implements TransactionExecutor {
     }
   }
 
-  private Dependency bindDependency(Dependency dependency, Binding binding) {
+  @Override
+  public <V> V executeWhen(Transaction<V> transaction, Condition condition) throws Exception {
+    return executeWhen(transaction, null, condition);
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Condition condition, long timeout, TimeUnit unit) throws Exception {
+    return executeWhen(transaction, null, condition, timeout, unit);
+  }
+
+  @Override
+  public <V> V executeWhen(Transaction<V> transaction, Binding binding, Condition condition) throws Exception {
+    return executeWhen(transaction, binding, condition, Long.MAX_VALUE, TimeUnit.MILLISECONDS).result();
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Binding binding, Condition condition, long timeout, TimeUnit unit) throws Exception {
+    Dependency dependency = bindDependency(transaction.dependency(), binding);
+    long timeoutMs = unit.toMillis(timeout);
+    long deadline = timeoutMs < Long.MAX_VALUE - System.currentTimeMillis() ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+    // Watch before the first evaluation so that no change is missed
+    ChangeWatch watch = new ChangeWatch(dependency);
+    try {
+      while (true) {
+        TransactionExecution transactionExecution = new BaseTransactionExecution(commitExecutor);
+        Context context = transactionExecution.begin(dependency);
+        try {
+          if (condition.holds(context)) {
+            V resultValue = transaction.run(context);
+            transactionExecution.commit();
+            return new TransactionExecutionResult<V>(true, resultValue);
+          }
+        } catch (Exception e) {
+          transactionExecution.abort();
+          throw e;
+        }
+        transactionExecution.abort();
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return new TransactionExecutionResult<V>(false, null);
+        }
+        watch.await(Math.min(remaining, CONDITION_WAIT_MS), TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      watch.close();
+    }
+  }
+
+  public static Dependency bindDependency(Dependency dependency, Binding binding) {
     List<VariableDependency> dependencies = bindReferences(dependency.all(), binding);
     return BaseDependency.builder().all(dependencies).build();
   }
 
-  private List<VariableDependency> bindReferences(List<VariableDependency> dependencies, Binding binding) {
+  private static List<VariableDependency> bindReferences(List<VariableDependency> dependencies, Binding binding) {
     // TODO check for extra bindings
     List<VariableDependency> result = Lists.newArrayList();
     for (VariableDependency dependency : dependencies) {
@@ -16,16 +16,53 @@
 
 package com.liveramp.megadesk.core.state;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 
 public class MultiPersistenceTransaction {
 
+  private static final Logger LOG = LoggerFactory.getLogger(MultiPersistenceTransaction.class);
+
+  private static final Comparator<TwoPhasePersistenceTransaction> PREPARE_ORDER = new Comparator<TwoPhasePersistenceTransaction>() {
+    @Override
+    public int compare(TwoPhasePersistenceTransaction a, TwoPhasePersistenceTransaction b) {
+      return a.prepareOrderKey().compareTo(b.prepareOrderKey());
+    }
+  };
+
   private final Map<Object, PersistenceTransaction> transactions;
+  private final ExecutorService executor;
 
   public MultiPersistenceTransaction() {
-    transactions = Maps.newHashMap();
+    this(null);
+  }
+
+  // Transactions of different categories are committed concurrently by the given executor
+  public MultiPersistenceTransaction(ExecutorService executor) {
+    this.transactions = Maps.newHashMap();
+    this.executor = executor;
   }
 
   public boolean containsTransactionFor(Object object) {
@@ -40,9 +77,224 @@ public class MultiPersistenceTransaction {
     transactions.put(object, transaction);
   }
 
+  // Other transactions are committed before prepared ones, so that prepared ones can still be aborted when
+  // they fail. Prepared transactions that were not committed are always aborted, to release their resources.
   public void commit() {
-    for (PersistenceTransaction transaction : transactions.values()) {
+    Map<Object, TwoPhasePersistenceTransaction> prepared = prepare();
+    Set<Object> committed = Sets.newHashSet();
+    try {
+      if (executor == null || transactions.size() < 2) {
+        commitInSequence(committed);
+      } else {
+        commitInParallel(onePhase(), committed);
+        commitInParallel(twoPhase(), committed);
+      }
+    } finally {
+      abort(prepared, committed);
+    }
+  }
+
+  // Two-phase transactions are prepared first, so that a failure to prepare one of them can still abort
+  // the whole commit. Prepared transactions can hold resources until they are committed, so they are
+  // prepared one after the other in a global order to prevent deadlocks between concurrent commits.
+  private Map<Object, TwoPhasePersistenceTransaction> prepare() {
+    List<Map.Entry<Object, PersistenceTransaction>> twoPhaseTransactions = twoPhase();
+    Collections.sort(twoPhaseTransactions, new Comparator<Map.Entry<Object, PersistenceTransaction>>() {
+      @Override
+      public int compare(Map.Entry<Object, PersistenceTransaction> a, Map.Entry<Object, PersistenceTransaction> b) {
+        return PREPARE_ORDER.compare((TwoPhasePersistenceTransaction)a.getValue(), (TwoPhasePersistenceTransaction)b.getValue());
+      }
+    });
+    Map<Object, TwoPhasePersistenceTransaction> prepared = Maps.newLinkedHashMap();
+    for (Map.Entry<Object, PersistenceTransaction> entry : twoPhaseTransactions) {
+      TwoPhasePersistenceTransaction transaction = (TwoPhasePersistenceTransaction)entry.getValue();
+      try {
+        transaction.prepare();
+        prepared.put(entry.getKey(), transaction);
+      } catch (RuntimeException e) {
+        abort(prepared, Collections.emptySet());
+        throw new MultiPersistenceTransactionException("Failed to prepare", Collections.<Object, Throwable>singletonMap(entry.getKey(), e), Collections.<Object>emptySet());
+      }
+    }
+    return prepared;
+  }
+
+  private static void abort(Map<Object, TwoPhasePersistenceTransaction> prepared, Set<?> committed) {
+    for (Map.Entry<Object, TwoPhasePersistenceTransaction> entry : prepared.entrySet()) {
+      if (committed.contains(entry.getKey())) {
+        continue;
+      }
+      try {
+        entry.getValue().abort();
+      } catch (RuntimeException e) {
+        LOG.error("Failed to abort prepared transaction", e);
+      }
+    }
+  }
+
+  private List<Map.Entry<Object, PersistenceTransaction>> onePhase() {
+    List<Map.Entry<Object, PersistenceTransaction>> result = Lists.newArrayList();
+    for (Map.Entry<Object, PersistenceTransaction> entry : transactions.entrySet()) {
+      if (!(entry.getValue() instanceof TwoPhasePersistenceTransaction)) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  private List<Map.Entry<Object, PersistenceTransaction>> twoPhase() {
+    List<Map.Entry<Object, PersistenceTransaction>> result = Lists.newArrayList();
+    for (Map.Entry<Object, PersistenceTransaction> entry : transactions.entrySet()) {
+      if (entry.getValue() instanceof TwoPhasePersistenceTransaction) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  private List<Map.Entry<Object, PersistenceTransaction>> commitOrder() {
+    List<Map.Entry<Object, PersistenceTransaction>> result = onePhase();
+    result.addAll(twoPhase());
+    return result;
+  }
+
+  private void commitInSequence(Set<Object> committed) {
+    for (Map.Entry<Object, PersistenceTransaction> entry : commitOrder()) {
+      try {
+        entry.getValue().commit();
+      } catch (RuntimeException e) {
+        throw new MultiPersistenceTransactionException("Failed to commit", Collections.<Object, Throwable>singletonMap(entry.getKey(), e), committed);
+      }
+      committed.add(entry.getKey());
+    }
+  }
+
+  private void commitInParallel(List<Map.Entry<Object, PersistenceTransaction>> entries, Set<Object> committed) {
+    Map<Object, Future<?>> futures = Maps.newHashMap();
+    for (Map.Entry<Object, PersistenceTransaction> entry : entries) {
+      final PersistenceTransaction transaction = entry.getValue();
+      futures.put(entry.getKey(), executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          transaction.commit();
+        }
+      }));
+    }
+    Map<Object, Throwable> failures = Maps.newHashMap();
+    for (Map.Entry<Object, Future<?>> entry : futures.entrySet()) {
+      try {
+        Uninterruptibles.getUninterruptibly(entry.getValue());
+        committed.add(entry.getKey());
+      } catch (ExecutionException e) {
+        failures.put(entry.getKey(), e.getCause());
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw new MultiPersistenceTransactionException("Failed to commit", failures, committed);
+    }
+  }
+
+  // Same order as commit, asynchronously for transactions that support it. Synchronous transactions run
+  // on the executor when there is one, and transactions of the same phase are then committed concurrently.
+  public ListenableFuture<Void> commitAsync() {
+    final SettableFuture<Void> result = SettableFuture.create();
+    final Map<Object, TwoPhasePersistenceTransaction> prepared;
+    try {
+      prepared = prepare();
+    } catch (RuntimeException e) {
+      result.setException(e);
+      return result;
+    }
+    List<List<Map.Entry<Object, PersistenceTransaction>>> groups = Lists.newArrayList();
+    if (executor == null || transactions.size() < 2) {
+      for (Map.Entry<Object, PersistenceTransaction> entry : commitOrder()) {
+        groups.add(Collections.singletonList(entry));
+      }
+    } else {
+      groups.add(onePhase());
+      groups.add(twoPhase());
+    }
+    final Set<Object> committed = Sets.newSetFromMap(Maps.<Object, Boolean>newConcurrentMap());
+    SettableFuture<Void> done = SettableFuture.create();
+    Futures.addCallback(done, new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void value) {
+        abort(prepared, committed);
+        result.set(null);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        abort(prepared, committed);
+        result.setException(t);
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    commitAsync(groups.iterator(), committed, done);
+    return result;
+  }
+
+  // Commits the transactions of each group concurrently, and the next group once they all succeeded
+  private void commitAsync(final Iterator<List<Map.Entry<Object, PersistenceTransaction>>> groups,
+                           final Set<Object> committed,
+                           final SettableFuture<Void> result) {
+    if (!groups.hasNext()) {
+      result.set(null);
+      return;
+    }
+    List<Map.Entry<Object, PersistenceTransaction>> group = groups.next();
+    if (group.isEmpty()) {
+      commitAsync(groups, committed, result);
+      return;
+    }
+    final Map<Object, Throwable> failures = Maps.newConcurrentMap();
+    final AtomicInteger remaining = new AtomicInteger(group.size());
+    for (Map.Entry<Object, PersistenceTransaction> entry : group) {
+      final Object category = entry.getKey();
+      Futures.addCallback(commitAsync(entry.getValue()), new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(Void value) {
+          committed.add(category);
+          completed();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          failures.put(category, t);
+          completed();
+        }
+
+        private void completed() {
+          if (remaining.decrementAndGet() > 0) {
+            return;
+          }
+          if (failures.isEmpty()) {
+            commitAsync(groups, committed, result);
+          } else {
+            result.setException(new MultiPersistenceTransactionException("Failed to commit", failures, committed));
+          }
+        }
+      }, MoreExecutors.sameThreadExecutor());
+    }
+  }
+
+  private ListenableFuture<Void> commitAsync(final PersistenceTransaction transaction) {
+    try {
+      if (transaction instanceof AsyncPersistenceTransaction) {
+        return ((AsyncPersistenceTransaction)transaction).commitAsync();
+      }
+      if (executor != null) {
+        return MoreExecutors.listeningDecorator(executor).submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            transaction.commit();
+            return null;
+          }
+        });
+      }
       transaction.commit();
+      return Futures.immediateFuture(null);
+    } catch (RuntimeException e) {
+      return Futures.immediateFailedFuture(e);
     }
   }
 }
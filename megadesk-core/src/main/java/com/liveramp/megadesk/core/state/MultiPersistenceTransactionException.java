@@ -0,0 +1,44 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.core.state;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+// Reports, per transaction category, which transactions failed and which were committed
+public class MultiPersistenceTransactionException extends RuntimeException {
+
+  private final Map<Object, Throwable> failures;
+  private final Set<Object> committed;
+
+  public MultiPersistenceTransactionException(String message, Map<Object, Throwable> failures, Set<Object> committed) {
+    super(message + ". Failed: " + failures.keySet() + ", committed: " + committed, failures.values().iterator().next());
+    this.failures = ImmutableMap.copyOf(failures);
+    this.committed = ImmutableSet.copyOf(committed);
+  }
+
+  public Map<Object, Throwable> getFailures() {
+    return failures;
+  }
+
+  public Set<Object> getCommitted() {
+    return committed;
+  }
+}
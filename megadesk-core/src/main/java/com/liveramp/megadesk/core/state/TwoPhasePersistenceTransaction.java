@@ -0,0 +1,31 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.core.state;
+
+// A transaction that can be made durable before being committed. Once all transactions taking part in
+// a commit are prepared they are committed, if any fails to prepare or commit the prepared ones are aborted.
+public interface TwoPhasePersistenceTransaction extends PersistenceTransaction {
+
+  void prepare();
+
+  // Does nothing when the transaction is not prepared, including once it has been committed
+  void abort();
+
+  // Transactions are prepared in the order of this key, which must be the same in every process
+  // for transactions that lock the same resources
+  String prepareOrderKey();
+}
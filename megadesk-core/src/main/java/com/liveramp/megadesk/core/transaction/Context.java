@@ -33,6 +33,22 @@ public interface Context {
 
   <VALUE> void write(Variable<VALUE> variable, VALUE value);
 
+  long readLong(Reference<Long> reference);
+
+  long readLong(Variable<Long> variable);
+
+  void writeLong(Reference<Long> reference, long value);
+
+  void writeLong(Variable<Long> variable, long value);
+
+  double readDouble(Reference<Double> reference);
+
+  double readDouble(Variable<Double> variable);
+
+  void writeDouble(Reference<Double> reference, double value);
+
+  void writeDouble(Variable<Double> variable, double value);
+
   <VALUE> boolean written(Reference<VALUE> reference);
 
   <VALUE> boolean written(Variable<VALUE> variable);
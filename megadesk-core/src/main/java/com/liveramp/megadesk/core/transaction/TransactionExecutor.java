@@ -16,6 +16,8 @@
 
 package com.liveramp.megadesk.core.transaction;
 
+import java.util.concurrent.TimeUnit;
+
 public interface TransactionExecutor {
 
   <V> V execute(Transaction<V> transaction) throws Exception;
@@ -25,4 +27,14 @@ public interface TransactionExecutor {
   <V> V execute(Transaction<V> transaction, Binding binding) throws Exception;
 
   <V> TransactionExecutionResult<V> tryExecute(Transaction<V> transaction, Binding binding) throws Exception;
+
+  // Waits for the variables of the transaction to change until the condition holds, then executes the transaction
+  <V> V executeWhen(Transaction<V> transaction, Condition condition) throws Exception;
+
+  // Same as executeWhen, but gives up once the timeout has elapsed
+  <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Condition condition, long timeout, TimeUnit unit) throws Exception;
+
+  <V> V executeWhen(Transaction<V> transaction, Binding binding, Condition condition) throws Exception;
+
+  <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Binding binding, Condition condition, long timeout, TimeUnit unit) throws Exception;
 }
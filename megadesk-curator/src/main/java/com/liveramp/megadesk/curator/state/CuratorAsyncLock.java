@@ -0,0 +1,317 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+
+import com.liveramp.megadesk.core.state.AsyncLock;
+import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.utils.FutureUtils;
+
+// Read or write half of a ZooKeeper read-write lock driven entirely by background callbacks and watches.
+// Node names follow InterProcessReadWriteLock, so both can be used on the same path. Ownership is not bound
+// to threads: any caller can release a node held by this lock.
+public class CuratorAsyncLock implements AsyncLock, Lock {
+
+  private static final String READ_LOCK_NAME = "__READ__";
+  private static final String WRITE_LOCK_NAME = "__WRIT__";
+  private static final int SEQUENCE_LENGTH = 10;
+  // Same format as the names created by Curator's protected mode
+  private static final String PROTECTED_PREFIX = "_c_";
+
+  private static final Comparator<String> SEQUENCE_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String a, String b) {
+      return sequence(a).compareTo(sequence(b));
+    }
+  };
+
+  private final CuratorFramework curator;
+  private final String path;
+  private final boolean exclusive;
+  private final Deque<String> heldNodes;
+
+  public CuratorAsyncLock(CuratorFramework curator, String path, boolean exclusive) {
+    this.curator = curator;
+    this.path = path;
+    this.exclusive = exclusive;
+    this.heldNodes = Lists.newLinkedList();
+  }
+
+  @Override
+  public ListenableFuture<Void> lockAsync() {
+    return Futures.transform(acquire(true), new Function<String, Void>() {
+      @Override
+      public Void apply(String node) {
+        return null;
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
+
+  @Override
+  public ListenableFuture<Void> unlockAsync() {
+    String node;
+    synchronized (heldNodes) {
+      node = heldNodes.pollLast();
+    }
+    if (node == null) {
+      return Futures.immediateFailedFuture(new IllegalStateException("Lock " + path + " is not held"));
+    }
+    return delete(node);
+  }
+
+  // Releases a specific node returned by acquire
+  ListenableFuture<Void> release(String node) {
+    synchronized (heldNodes) {
+      if (!heldNodes.remove(node)) {
+        return Futures.immediateFailedFuture(new IllegalStateException("Lock " + path + " does not hold " + node));
+      }
+    }
+    return delete(node);
+  }
+
+  @Override
+  public void lock() {
+    Futures.getUnchecked(lockAsync());
+  }
+
+  @Override
+  public boolean tryLock() {
+    return Futures.getUnchecked(acquire(false)) != null;
+  }
+
+  @Override
+  public void unlock() {
+    Futures.getUnchecked(unlockAsync());
+  }
+
+  public boolean isLockOwned() {
+    synchronized (heldNodes) {
+      return !heldNodes.isEmpty();
+    }
+  }
+
+  // Returns the path of the acquired node, or null when not waiting and the lock is not available
+  ListenableFuture<String> acquire(boolean wait) {
+    Attempt attempt = new Attempt(wait);
+    attempt.start();
+    return attempt.result;
+  }
+
+  private ListenableFuture<Void> delete(String node) {
+    final SettableFuture<Void> result = SettableFuture.create();
+    try {
+      curator.delete().inBackground(new BackgroundCallback() {
+        @Override
+        public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+          KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+          // The node is also gone if the session expired
+          if (code == KeeperException.Code.OK || code == KeeperException.Code.NONODE) {
+            result.set(null);
+          } else {
+            result.setException(KeeperException.create(code, event.getPath()));
+          }
+        }
+      }).forPath(node);
+    } catch (Exception e) {
+      result.setException(e);
+    }
+    return result;
+  }
+
+  private static String sequence(String node) {
+    return node.substring(node.length() - SEQUENCE_LENGTH);
+  }
+
+  static boolean isLockNode(String name) {
+    return name.contains(READ_LOCK_NAME) || name.contains(WRITE_LOCK_NAME);
+  }
+
+  static boolean isWriteLockNode(String name) {
+    return name.contains(WRITE_LOCK_NAME);
+  }
+
+  // Creates a sequential node, then waits for the nodes it conflicts with to be deleted. The node name carries a
+  // protection prefix, so that a node created by a request whose response was lost can still be found.
+  private class Attempt implements BackgroundCallback, CuratorWatcher {
+
+    private final boolean wait;
+    private final SettableFuture<String> result;
+    private final String protection;
+    private volatile String node;
+
+    private Attempt(boolean wait) {
+      this.wait = wait;
+      this.result = SettableFuture.create();
+      this.protection = PROTECTED_PREFIX + UUID.randomUUID() + "-";
+    }
+
+    private void start() {
+      try {
+        String name = protection + (exclusive ? WRITE_LOCK_NAME : READ_LOCK_NAME);
+        curator.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL_SEQUENTIAL).inBackground(this).forPath(path + "/" + name);
+      } catch (Exception e) {
+        fail(e);
+      }
+    }
+
+    // The create may have succeeded on the server even though the connection was lost before the response
+    private void recover() {
+      try {
+        curator.getChildren().inBackground(new BackgroundCallback() {
+          @Override
+          public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+            KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (code != KeeperException.Code.OK && code != KeeperException.Code.NONODE) {
+              fail(KeeperException.create(code, event.getPath()));
+              return;
+            }
+            if (code == KeeperException.Code.OK) {
+              for (String child : event.getChildren()) {
+                if (child.startsWith(protection)) {
+                  node = path + "/" + child;
+                  check();
+                  return;
+                }
+              }
+            }
+            // The node was not created, try again
+            start();
+          }
+        }).forPath(path);
+      } catch (Exception e) {
+        fail(e);
+      }
+    }
+
+    private void check() {
+      try {
+        curator.getChildren().inBackground(this).forPath(path);
+      } catch (Exception e) {
+        fail(e);
+      }
+    }
+
+    @Override
+    public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+      KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+      switch (event.getType()) {
+        case CREATE:
+          if (code == KeeperException.Code.OK) {
+            node = event.getName();
+            check();
+          } else if (code == KeeperException.Code.CONNECTIONLOSS) {
+            recover();
+          } else {
+            fail(KeeperException.create(code, event.getPath()));
+          }
+          break;
+        case CHILDREN:
+          if (code == KeeperException.Code.OK) {
+            evaluate(event.getChildren());
+          } else {
+            fail(KeeperException.create(code, event.getPath()));
+          }
+          break;
+        case EXISTS:
+          // The conflicting node was deleted before the watch could be set
+          if (code == KeeperException.Code.NONODE) {
+            check();
+          } else if (code != KeeperException.Code.OK) {
+            fail(KeeperException.create(code, event.getPath()));
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void process(WatchedEvent event) throws Exception {
+      check();
+    }
+
+    private void evaluate(List<String> children) {
+      if (result.isDone()) {
+        return;
+      }
+      List<String> nodes = Lists.newArrayList();
+      for (String child : children) {
+        if (isLockNode(child)) {
+          nodes.add(child);
+        }
+      }
+      Collections.sort(nodes, SEQUENCE_ORDER);
+      int index = nodes.indexOf(node.substring(node.lastIndexOf('/') + 1));
+      if (index < 0) {
+        fail(new IllegalStateException("Lock node " + node + " does not exist anymore"));
+        return;
+      }
+      // Writers conflict with every earlier node, readers only with earlier writers
+      String conflict = null;
+      for (int i = index - 1; i >= 0 && conflict == null; --i) {
+        if (exclusive || isWriteLockNode(nodes.get(i))) {
+          conflict = nodes.get(i);
+        }
+      }
+      if (conflict == null) {
+        synchronized (heldNodes) {
+          heldNodes.add(node);
+        }
+        result.set(node);
+      } else if (!wait) {
+        FutureUtils.propagate(Futures.transform(delete(node), new Function<Void, String>() {
+          @Override
+          public String apply(Void ignored) {
+            return null;
+          }
+        }, MoreExecutors.sameThreadExecutor()), result);
+      } else {
+        try {
+          curator.checkExists().usingWatcher(this).inBackground(this).forPath(path + "/" + conflict);
+        } catch (Exception e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void fail(Throwable t) {
+      if (node != null) {
+        delete(node);
+      }
+      result.setException(t);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.concurrent.Executor;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.zookeeper.KeeperException;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.AsyncPersistence;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+
+// Reads and writes in the background. Transactions that write a single node commit in the background too,
+// others are committed by the given executor, see CuratorAsyncPersistenceTransaction.
+public class CuratorAsyncPersistence<VALUE> extends CuratorPersistence<VALUE> implements AsyncPersistence<VALUE>, Persistence<VALUE> {
+
+  private final Executor commitExecutor;
+
+  public CuratorAsyncPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer, Executor commitExecutor) {
+    super(curator, path, serializer);
+    this.commitExecutor = commitExecutor;
+  }
+
+  @Override
+  public ListenableFuture<VALUE> readAsync() {
+    final SettableFuture<VALUE> result = SettableFuture.create();
+    try {
+      curator().getData().inBackground(new BackgroundCallback() {
+        @Override
+        public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+          KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+          if (code != KeeperException.Code.OK) {
+            result.setException(KeeperException.create(code, event.getPath()));
+            return;
+          }
+          try {
+            result.set(deserialize(event.getData()));
+          } catch (RuntimeException e) {
+            result.setException(e);
+          }
+        }
+      }).forPath(path());
+    } catch (Exception e) {
+      result.setException(e);
+    }
+    return result;
+  }
+
+  @Override
+  public ListenableFuture<Void> writeAsync(VALUE value) {
+    byte[] data;
+    try {
+      data = serialize(value);
+    } catch (RuntimeException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+    return setDataInBackground(curator(), path(), data);
+  }
+
+  @Override
+  public PersistenceTransaction newTransaction() {
+    return new CuratorAsyncPersistenceTransaction(curator(), commitExecutor);
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, byte[] serializedValue) {
+    if (transaction instanceof CuratorAsyncPersistenceTransaction) {
+      try {
+        ((CuratorAsyncPersistenceTransaction)transaction).setData(path(), serializedValue);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    } else {
+      super.writeInTransaction(transaction, serializedValue);
+    }
+  }
+
+  static ListenableFuture<Void> setDataInBackground(CuratorFramework curator, String path, byte[] data) {
+    final SettableFuture<Void> result = SettableFuture.create();
+    try {
+      curator.setData().inBackground(new BackgroundCallback() {
+        @Override
+        public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+          KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+          if (code == KeeperException.Code.OK) {
+            result.set(null);
+          } else {
+            result.setException(KeeperException.create(code, event.getPath()));
+          }
+        }
+      }).forPath(path, data);
+    } catch (Exception e) {
+      result.setException(e);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+
+import com.liveramp.megadesk.core.state.AsyncPersistenceTransaction;
+
+// A transaction that only sets the data of a single node is committed in the background.
+// ZooKeeper 3.4 has no asynchronous multi-op, so any other transaction is committed by the given executor.
+public class CuratorAsyncPersistenceTransaction extends CuratorPersistenceTransaction implements AsyncPersistenceTransaction {
+
+  private final CuratorFramework curator;
+  private final Executor executor;
+  private int writes;
+  private boolean multiOp;
+  private String path;
+  private byte[] data;
+
+  public CuratorAsyncPersistenceTransaction(CuratorFramework curator, Executor executor) {
+    super(curator.inTransaction());
+    this.curator = curator;
+    this.executor = executor;
+  }
+
+  void setData(String path, byte[] data) throws Exception {
+    super.transaction().setData().forPath(path, data);
+    writes++;
+    this.path = path;
+    this.data = data;
+  }
+
+  @Override
+  public CuratorTransaction transaction() {
+    // Operations added directly, such as version checks, need the multi-op
+    multiOp = true;
+    return super.transaction();
+  }
+
+  @Override
+  public ListenableFuture<Void> commitAsync() {
+    if (!multiOp && writes == 0) {
+      return Futures.<Void>immediateFuture(null);
+    }
+    if (!multiOp && writes == 1) {
+      return CuratorAsyncPersistence.setDataInBackground(curator, path, data);
+    }
+    ListenableFutureTask<Void> task = ListenableFutureTask.create(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        commit();
+        return null;
+      }
+    });
+    executor.execute(task);
+    return task;
+  }
+}
@@ -16,6 +16,11 @@
 
 package com.liveramp.megadesk.curator.state;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
 
@@ -35,4 +40,78 @@ public class CuratorDriver {
     Persistence<VALUE> persistence = new CuratorPersistence<VALUE>(framework, path, serializer);
     return new BaseDriver<VALUE>(persistence, lock);
   }
+
+  // The lock is retained between transactions of this process, see CuratorRetainedLock
+  public static <VALUE> Driver<VALUE> buildRetaining(String path,
+                                                     CuratorFramework framework,
+                                                     SerializationHandler<VALUE> serializer,
+                                                     long idleTimeout,
+                                                     TimeUnit unit) {
+    ReadWriteLock lock = CuratorReadWriteLock.retaining(framework, path + "/lock", idleTimeout, unit);
+    Persistence<VALUE> persistence = new CuratorPersistence<VALUE>(framework, path, serializer);
+    return new BaseDriver<VALUE>(persistence, lock);
+  }
+
+  // Local threads contending for the variable share a single lock node, see CuratorHandoffLock
+  public static <VALUE> Driver<VALUE> buildHandoff(String path,
+                                                   CuratorFramework framework,
+                                                   SerializationHandler<VALUE> serializer,
+                                                   int fairnessBound) {
+    ReadWriteLock lock = CuratorReadWriteLock.handingOff(framework, path + "/lock", fairnessBound);
+    Persistence<VALUE> persistence = new CuratorPersistence<VALUE>(framework, path, serializer);
+    return new BaseDriver<VALUE>(persistence, lock);
+  }
+
+  // The lock is a single-node lease, see CuratorLeaseLock. Commits fail once the lease has been taken over.
+  // The lease does not exclude the other kinds of locks, so all drivers of a path must be built the same way.
+  public static <VALUE> Driver<VALUE> buildLeased(String path,
+                                                  CuratorFramework framework,
+                                                  SerializationHandler<VALUE> serializer,
+                                                  long lease,
+                                                  TimeUnit unit) {
+    CuratorLeaseLock leaseLock = new CuratorLeaseLock(framework, path + "/lease", lease, unit);
+    ReadWriteLock lock = CuratorReadWriteLock.leased(leaseLock);
+    Persistence<VALUE> persistence = new CuratorLeasedPersistence<VALUE>(framework, path, serializer, leaseLock);
+    return new BaseDriver<VALUE>(persistence, lock);
+  }
+
+  // Provisions the nodes of all drivers, and of their locks, in bulk
+  public static <VALUE> List<Driver<VALUE>> buildAll(List<String> paths,
+                                                     CuratorFramework framework,
+                                                     SerializationHandler<VALUE> serializer) {
+    List<String> nodes = Lists.newArrayList();
+    for (String path : paths) {
+      nodes.add(path);
+      nodes.add(path + "/lock");
+    }
+    new CuratorProvisioner(framework).provision(nodes);
+
+    List<Driver<VALUE>> result = Lists.newArrayList();
+    for (String path : paths) {
+      ReadWriteLock lock = new CuratorReadWriteLock(new InterProcessReadWriteLock(framework, path + "/lock"));
+      Persistence<VALUE> persistence = new CuratorPersistence<VALUE>(framework, path, serializer, false);
+      result.add(new BaseDriver<VALUE>(persistence, lock));
+    }
+    return result;
+  }
+
+  // Persistence and lock never block the calling thread, for use with BaseAsyncTransactionExecutor
+  public static <VALUE> Driver<VALUE> buildAsync(String path,
+                                                 CuratorFramework framework,
+                                                 SerializationHandler<VALUE> serializer,
+                                                 Executor commitExecutor) {
+    ReadWriteLock lock = new CuratorAsyncReadWriteLock(framework, path + "/lock");
+    Persistence<VALUE> persistence = new CuratorAsyncPersistence<VALUE>(framework, path, serializer, commitExecutor);
+    return new BaseDriver<VALUE>(persistence, lock);
+  }
+
+  public static Driver<Long> buildLong(String path, CuratorFramework framework, long initialValue) {
+    ReadWriteLock lock = new CuratorReadWriteLock(new InterProcessReadWriteLock(framework, path + "/lock"));
+    return new BaseDriver<Long>(new CuratorLongPersistence(framework, path, initialValue), lock);
+  }
+
+  public static Driver<Double> buildDouble(String path, CuratorFramework framework, double initialValue) {
+    ReadWriteLock lock = new CuratorReadWriteLock(new InterProcessReadWriteLock(framework, path + "/lock"));
+    return new BaseDriver<Double>(new CuratorDoublePersistence(framework, path, initialValue), lock);
+  }
 }
@@ -0,0 +1,165 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import com.liveramp.megadesk.core.state.Lock;
+
+// Threads of this process first queue locally. While the process holds the ZooKeeper lock node, ownership is handed
+// from thread to thread without any ZooKeeper operation, at most fairnessBound times in a row, after which the node
+// is released so that other processes get their turn.
+public class CuratorHandoffLock implements Lock {
+
+  // Not bound to threads, since the node may be released by another thread than the one that acquired it
+  private final CuratorAsyncLock lock;
+  private final boolean exclusive;
+  private final int fairnessBound;
+
+  private boolean held;
+  private boolean acquiring;
+  private boolean releasing;
+  private int holders;
+  private int waiters;
+  private int handoffs;
+
+  public CuratorHandoffLock(CuratorFramework curator, String path, boolean exclusive, int fairnessBound) {
+    if (fairnessBound < 0) {
+      throw new IllegalArgumentException("Fairness bound must not be negative");
+    }
+    this.lock = new CuratorAsyncLock(curator, path, exclusive);
+    this.exclusive = exclusive;
+    this.fairnessBound = fairnessBound;
+  }
+
+  @Override
+  public void lock() {
+    synchronized (this) {
+      ++waiters;
+      boolean interrupted = false;
+      try {
+        while (!canEnter()) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        --waiters;
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (held) {
+        enter();
+        return;
+      }
+      acquiring = true;
+    }
+    acquire(true);
+  }
+
+  @Override
+  public boolean tryLock() {
+    synchronized (this) {
+      if (!canEnter()) {
+        return false;
+      }
+      if (held) {
+        enter();
+        return true;
+      }
+      acquiring = true;
+    }
+    return acquire(false);
+  }
+
+  @Override
+  public void unlock() {
+    synchronized (this) {
+      if (holders == 0) {
+        throw new IllegalStateException("Lock is not held");
+      }
+      --holders;
+      if (holders > 0) {
+        return;
+      }
+      // Hand off to a local waiter while the bound allows it
+      if (waiters > 0 && handoffs < fairnessBound) {
+        notifyAll();
+        return;
+      }
+      held = false;
+      releasing = true;
+    }
+    try {
+      lock.unlock();
+    } finally {
+      synchronized (this) {
+        releasing = false;
+        notifyAll();
+      }
+    }
+  }
+
+  // Whether local threads are waiting for the lock
+  public synchronized boolean hasQueuedThreads() {
+    return waiters > 0;
+  }
+
+  private boolean canEnter() {
+    if (acquiring || releasing) {
+      return false;
+    }
+    if (!held) {
+      return true;
+    }
+    if (handoffs >= fairnessBound) {
+      return false;
+    }
+    return !exclusive || holders == 0;
+  }
+
+  private void enter() {
+    ++holders;
+    ++handoffs;
+  }
+
+  private boolean acquire(boolean wait) {
+    boolean acquired = false;
+    try {
+      if (wait) {
+        lock.lock();
+        acquired = true;
+      } else {
+        acquired = lock.tryLock();
+      }
+    } finally {
+      synchronized (this) {
+        acquiring = false;
+        if (acquired) {
+          held = true;
+          holders = 1;
+          handoffs = 0;
+        }
+        notifyAll();
+      }
+    }
+    return acquired;
+  }
+}
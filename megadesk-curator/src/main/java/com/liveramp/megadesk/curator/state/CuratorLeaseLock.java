@@ -0,0 +1,208 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.liveramp.megadesk.core.state.Lock;
+
+// Exclusive lock stored in a single node holding the owner and the expiry of its lease. The lease is taken and given
+// back with version-checked writes, so an uncontended transaction costs one write to lock and one to unlock. Waiters
+// watch the node and retry when it changes or when the current lease expires. Leases rely on the clocks of the
+// processes being roughly in sync, and should be longer than the transactions they protect. Commits are fenced by
+// a check of the lease version, see fence, so a holder whose lease was taken over cannot overwrite the next holder.
+// The lease node is separate from the nodes of the other Curator locks, which it does not exclude: a path must not
+// be locked both with a lease and with another kind of lock.
+public class CuratorLeaseLock implements Lock {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CuratorLeaseLock.class);
+
+  private static final byte[] FREE = new byte[0];
+
+  private final CuratorFramework curator;
+  private final String path;
+  private final long leaseMs;
+  private final byte[] owner;
+  // Threads of this process exclude each other locally
+  private final Semaphore localPermit;
+
+  // Version of the node as last written by this lock, -1 when unknown or possibly changed since
+  private volatile int version;
+
+  public CuratorLeaseLock(CuratorFramework curator, String path, long lease, TimeUnit unit) {
+    this.curator = curator;
+    this.path = path;
+    this.leaseMs = unit.toMillis(lease);
+    this.owner = UUID.randomUUID().toString().getBytes(Charsets.UTF_8);
+    this.localPermit = new Semaphore(1, true);
+    this.version = -1;
+  }
+
+  @Override
+  public void lock() {
+    localPermit.acquireUninterruptibly();
+    try {
+      while (true) {
+        // Optimistically assume the node is free and unchanged since this lock last wrote it
+        if (version >= 0 && write(lease(), version)) {
+          return;
+        }
+        CountDownLatch changed = new CountDownLatch(1);
+        Long expiry = readAndTake(changed);
+        if (expiry == null) {
+          return;
+        }
+        long remaining = expiry - System.currentTimeMillis();
+        if (remaining > 0) {
+          Uninterruptibles.awaitUninterruptibly(changed, remaining, TimeUnit.MILLISECONDS);
+        }
+      }
+    } catch (RuntimeException e) {
+      localPermit.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (!localPermit.tryAcquire()) {
+      return false;
+    }
+    boolean result = false;
+    try {
+      result = (version >= 0 && write(lease(), version)) || readAndTake(null) == null;
+    } finally {
+      if (!result) {
+        localPermit.release();
+      }
+    }
+    return result;
+  }
+
+  // Unlocking happens after the commit, so a lease that was taken over is only reported: the commit itself failed
+  // on the fence, and there is nothing left to give back
+  @Override
+  public void unlock() {
+    try {
+      // A negative version would make the write unconditional
+      if (version < 0 || !write(FREE, version)) {
+        LOG.warn("Lease on " + path + " expired and was taken over before being released");
+      }
+    } finally {
+      localPermit.release();
+    }
+  }
+
+  // Adds a check of the lease version to a commit, so that the commit fails if the lease was taken over
+  public void fence(CuratorTransaction transaction) throws Exception {
+    int current = version;
+    if (current < 0) {
+      throw new IllegalStateException("Lease on " + path + " is not held");
+    }
+    transaction.check().withVersion(current).forPath(path);
+  }
+
+  // Takes the lease if it is free or expired. Returns null on success, the expiry of the current lease otherwise.
+  private Long readAndTake(CountDownLatch changed) {
+    try {
+      Stat stat = new Stat();
+      byte[] data;
+      try {
+        if (changed == null) {
+          data = curator.getData().storingStatIn(stat).forPath(path);
+        } else {
+          data = curator.getData().storingStatIn(stat).usingWatcher(watcher(changed)).forPath(path);
+        }
+      } catch (KeeperException.NoNodeException e) {
+        try {
+          curator.create().creatingParentsIfNeeded().forPath(path, lease());
+          version = 0;
+          return null;
+        } catch (KeeperException.NodeExistsException ignored) {
+          // Created concurrently, retry right away
+          return 0L;
+        }
+      }
+      long expiry = expiry(data);
+      if (expiry <= System.currentTimeMillis() && write(lease(), stat.getVersion())) {
+        return null;
+      }
+      return expiry;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Version-checked write, returns false if the node changed in the meantime
+  private boolean write(byte[] data, int expectedVersion) {
+    try {
+      Stat stat = curator.setData().withVersion(expectedVersion).forPath(path, data);
+      version = stat.getVersion();
+      return true;
+    } catch (KeeperException.BadVersionException e) {
+      version = -1;
+      return false;
+    } catch (KeeperException.NoNodeException e) {
+      version = -1;
+      return false;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private byte[] lease() {
+    ByteBuffer buffer = ByteBuffer.allocate(8 + owner.length);
+    buffer.putLong(System.currentTimeMillis() + leaseMs);
+    buffer.put(owner);
+    return buffer.array();
+  }
+
+  private long expiry(byte[] data) {
+    // Also treat a lease left behind by this same lock as expired
+    if (data == null || data.length < 8 || Arrays.equals(owner, Arrays.copyOfRange(data, 8, data.length))) {
+      return 0L;
+    }
+    return ByteBuffer.wrap(data).getLong();
+  }
+
+  private static CuratorWatcher watcher(final CountDownLatch changed) {
+    return new CuratorWatcher() {
+      @Override
+      public void process(WatchedEvent event) throws Exception {
+        changed.countDown();
+      }
+    };
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+
+// Commits are fenced by the lease that locks the variable, see CuratorLeaseLock
+public class CuratorLeasedPersistence<VALUE> extends CuratorPersistence<VALUE> implements Persistence<VALUE> {
+
+  private final CuratorLeaseLock lease;
+
+  public CuratorLeasedPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer, CuratorLeaseLock lease) {
+    super(curator, path, serializer);
+    this.lease = lease;
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, byte[] serializedValue) {
+    try {
+      lease.fence(((CuratorPersistenceTransaction)transaction).transaction());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    super.writeInTransaction(transaction, serializedValue);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import com.google.common.primitives.Longs;
+import org.apache.curator.framework.CuratorFramework;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.LongPersistence;
+import com.liveramp.megadesk.core.state.MultiPersistenceTransaction;
+
+// Stores the value as 8 bytes, big-endian
+public class CuratorLongPersistence extends CuratorPersistence<Long> implements LongPersistence {
+
+  public CuratorLongPersistence(CuratorFramework curator, String path, long initialValue) {
+    super(curator, path, new Encoding(path), encode(initialValue));
+  }
+
+  @Override
+  public long readLong() {
+    return decode(path(), readBytes());
+  }
+
+  @Override
+  public void writeLong(long value) {
+    writeBytes(encode(value));
+  }
+
+  @Override
+  public void writeLongInMultiTransaction(MultiPersistenceTransaction transaction, long value) {
+    writeInTransaction(transactionIn(transaction), encode(value));
+  }
+
+  private static byte[] encode(long value) {
+    return Longs.toByteArray(value);
+  }
+
+  private static long decode(String path, byte[] data) {
+    if (data == null || data.length != Longs.BYTES) {
+      throw new IllegalStateException("Node " + path + " does not contain an 8-byte value");
+    }
+    return Longs.fromByteArray(data);
+  }
+
+  private static class Encoding implements SerializationHandler<Long> {
+
+    private final String path;
+
+    private Encoding(String path) {
+      this.path = path;
+    }
+
+    @Override
+    public byte[] serialize(Long value) {
+      if (value == null) {
+        throw new IllegalArgumentException("Node " + path + " holds a long and cannot be set to null");
+      }
+      return encode(value);
+    }
+
+    @Override
+    public Long deserialize(byte[] data) {
+      return decode(path, data);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.io.IOException;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.NodeCache;
+import org.apache.curator.framework.recipes.cache.NodeCacheListener;
+
+import com.liveramp.megadesk.base.state.ChangeNotifier;
+import com.liveramp.megadesk.core.state.ChangeListener;
+import com.liveramp.megadesk.core.state.Subscription;
+
+// Notifies subscribers of changes to a node, which is only watched while there are subscribers
+class CuratorNodeWatch {
+
+  private final CuratorFramework curator;
+  private final String path;
+  private final ChangeNotifier notifier = new ChangeNotifier();
+  private NodeCache cache;
+
+  CuratorNodeWatch(CuratorFramework curator, String path) {
+    this.curator = curator;
+    this.path = path;
+  }
+
+  synchronized Subscription subscribe(ChangeListener listener) {
+    final Subscription subscription = notifier.subscribe(listener);
+    if (cache == null) {
+      cache = new NodeCache(curator, path);
+      cache.getListenable().addListener(new NodeCacheListener() {
+        @Override
+        public void nodeChanged() throws Exception {
+          notifier.changed();
+        }
+      });
+      try {
+        // Loading the current data up front keeps it from being reported as a change
+        cache.start(true);
+      } catch (Exception e) {
+        cache = null;
+        subscription.cancel();
+        throw new RuntimeException(e);
+      }
+    }
+    return new Subscription() {
+      @Override
+      public void cancel() {
+        subscription.cancel();
+        closeCacheIfUnused();
+      }
+    };
+  }
+
+  long version() {
+    return notifier.version();
+  }
+
+  private synchronized void closeCacheIfUnused() {
+    if (cache != null && !notifier.hasListeners()) {
+      try {
+        cache.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      } finally {
+        cache = null;
+      }
+    }
+  }
+}
@@ -17,28 +17,54 @@
 package com.liveramp.megadesk.curator.state;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.data.Stat;
 
 import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.ChangeListener;
 import com.liveramp.megadesk.core.state.Persistence;
 import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.Subscription;
+import com.liveramp.megadesk.core.state.WatchablePersistence;
 import com.liveramp.megadesk.recipes.state.persistence.SerializationPersistence;
 
-public class CuratorPersistence<VALUE> extends SerializationPersistence<VALUE> implements Persistence<VALUE> {
+public class CuratorPersistence<VALUE> extends SerializationPersistence<VALUE> implements Persistence<VALUE>, CuratorVersionedPersistence, WatchablePersistence {
 
   private CuratorFramework curator;
   private final String path;
+  private final CuratorNodeWatch watch;
 
   public CuratorPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer) {
+    this(curator, path, serializer, true);
+  }
+
+  // Nodes that have already been provisioned do not need to be checked again
+  public CuratorPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer, boolean createIfMissing) {
+    this(curator, path, serializer, createIfMissing, null);
+  }
+
+  // Missing nodes are created with the given data rather than the framework's default
+  protected CuratorPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer, byte[] initialData) {
+    this(curator, path, serializer, true, initialData);
+  }
+
+  private CuratorPersistence(CuratorFramework curator, String path, SerializationHandler<VALUE> serializer, boolean createIfMissing, byte[] initialData) {
     super(serializer);
     this.curator = curator;
     this.path = path;
+    this.watch = new CuratorNodeWatch(curator, path);
 
-    try {
-      if (curator.checkExists().forPath(path) == null) {
-        curator.create().creatingParentsIfNeeded().forPath(path);
+    if (createIfMissing) {
+      try {
+        if (curator.checkExists().forPath(path) == null) {
+          if (initialData == null) {
+            curator.create().creatingParentsIfNeeded().forPath(path);
+          } else {
+            curator.create().creatingParentsIfNeeded().forPath(path, initialData);
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException(e);
       }
-    } catch (Exception e) {
-      throw new RuntimeException(e);
     }
   }
 
@@ -60,6 +86,35 @@ public class CuratorPersistence<VALUE> extends SerializationPersistence<VALUE> i
     }
   }
 
+  @Override
+  public CuratorFramework curator() {
+    return curator;
+  }
+
+  @Override
+  public String path() {
+    return path;
+  }
+
+  @Override
+  public VALUE read(Stat stat) {
+    try {
+      return deserialize(curator.getData().storingStatIn(stat).forPath(path));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Subscription subscribe(ChangeListener listener) {
+    return watch.subscribe(listener);
+  }
+
+  @Override
+  public long version() {
+    return watch.version();
+  }
+
   @Override
   public Object transactionCategory() {
     return curator;
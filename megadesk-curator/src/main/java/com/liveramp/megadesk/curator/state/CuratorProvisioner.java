@@ -0,0 +1,157 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Creates many nodes, and their missing ancestors, at once. Existence checks are pipelined
+// and missing nodes are created in multi-op transactions of bounded size.
+public class CuratorProvisioner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CuratorProvisioner.class);
+
+  public static final int DEFAULT_MAX_OPERATIONS = 500;
+
+  private final CuratorFramework curator;
+  private final int maxOperations;
+
+  public CuratorProvisioner(CuratorFramework curator) {
+    this(curator, DEFAULT_MAX_OPERATIONS);
+  }
+
+  public CuratorProvisioner(CuratorFramework curator, int maxOperations) {
+    this.curator = curator;
+    this.maxOperations = maxOperations;
+  }
+
+  public void provision(Collection<String> paths) {
+    Map<String, byte[]> nodes = Maps.newHashMap();
+    for (String path : paths) {
+      nodes.put(path, null);
+    }
+    provision(nodes);
+  }
+
+  // Nodes that need to be created get the given data, or the framework's default data when null
+  public void provision(Map<String, byte[]> nodes) {
+    try {
+      Set<String> missing = missing(nodes.keySet());
+      // Ancestors only need to be checked when a node is missing
+      Set<String> ancestors = Sets.newHashSet();
+      for (String path : missing) {
+        ancestors.addAll(ancestors(path));
+      }
+      ancestors.removeAll(nodes.keySet());
+      missing.addAll(missing(ancestors));
+      // Sorting puts every node after its ancestors
+      List<String> sorted = Lists.newArrayList(missing);
+      Collections.sort(sorted);
+      for (List<String> chunk : Lists.partition(sorted, maxOperations)) {
+        create(chunk, nodes);
+      }
+      LOG.debug("Provisioned " + nodes.size() + " nodes, created " + sorted.size());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private Set<String> missing(Collection<String> paths) throws Exception {
+    final Set<String> result = Collections.synchronizedSet(Sets.<String>newHashSet());
+    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+    final CountDownLatch latch = new CountDownLatch(paths.size());
+    BackgroundCallback callback = new BackgroundCallback() {
+      @Override
+      public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+        KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+        if (code == KeeperException.Code.NONODE) {
+          result.add(event.getPath());
+        } else if (code != KeeperException.Code.OK) {
+          error.compareAndSet(null, KeeperException.create(code, event.getPath()));
+        }
+        latch.countDown();
+      }
+    };
+    for (String path : paths) {
+      curator.checkExists().inBackground(callback).forPath(path);
+    }
+    latch.await();
+    if (error.get() != null) {
+      throw error.get();
+    }
+    return Sets.newHashSet(result);
+  }
+
+  private void create(List<String> paths, Map<String, byte[]> nodes) throws Exception {
+    CuratorTransaction transaction = curator.inTransaction();
+    for (String path : paths) {
+      byte[] data = nodes.get(path);
+      if (data == null) {
+        transaction = transaction.create().forPath(path).and();
+      } else {
+        transaction = transaction.create().forPath(path, data).and();
+      }
+    }
+    try {
+      ((CuratorTransactionFinal)transaction).commit();
+    } catch (KeeperException.NodeExistsException e) {
+      // Another process created some of these nodes concurrently
+      for (String path : paths) {
+        createIfMissing(path, nodes.get(path));
+      }
+    }
+  }
+
+  private void createIfMissing(String path, byte[] data) throws Exception {
+    try {
+      if (data == null) {
+        curator.create().forPath(path);
+      } else {
+        curator.create().forPath(path, data);
+      }
+    } catch (KeeperException.NodeExistsException e) {
+      // Ignore
+    }
+  }
+
+  private static List<String> ancestors(String path) {
+    List<String> result = Lists.newArrayList();
+    int index = path.indexOf('/', 1);
+    while (index > 0) {
+      result.add(path.substring(0, index));
+      index = path.indexOf('/', index + 1);
+    }
+    return result;
+  }
+}
@@ -16,9 +16,13 @@
 
 package com.liveramp.megadesk.curator.state;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
 
 import com.liveramp.megadesk.base.state.BaseReadWriteLock;
+import com.liveramp.megadesk.core.state.Lock;
 import com.liveramp.megadesk.core.state.ReadWriteLock;
 
 public class CuratorReadWriteLock extends BaseReadWriteLock implements ReadWriteLock {
@@ -27,4 +31,29 @@ public class CuratorReadWriteLock extends BaseReadWriteLock implements ReadWrite
     super(new CuratorLock(readWriteLock.readLock()),
              new CuratorLock(readWriteLock.writeLock()));
   }
+
+  private CuratorReadWriteLock(Lock readLock, Lock writeLock) {
+    super(readLock, writeLock);
+  }
+
+  // Both halves keep their node across consecutive transactions until another process competes for it
+  public static CuratorReadWriteLock retaining(CuratorFramework curator, String path, long idleTimeout, TimeUnit unit) {
+    return new CuratorReadWriteLock(new CuratorRetainedLock(curator, path, false, idleTimeout, unit),
+                                    new CuratorRetainedLock(curator, path, true, idleTimeout, unit));
+  }
+
+  // Readers and writers alike take the same single-node lease, which suits variables with little contention
+  public static CuratorReadWriteLock leased(CuratorFramework curator, String path, long lease, TimeUnit unit) {
+    return leased(new CuratorLeaseLock(curator, path, lease, unit));
+  }
+
+  public static CuratorReadWriteLock leased(CuratorLeaseLock lock) {
+    return new CuratorReadWriteLock(lock, lock);
+  }
+
+  // Threads of this process hand both halves to each other before going through ZooKeeper
+  public static CuratorReadWriteLock handingOff(CuratorFramework curator, String path, int fairnessBound) {
+    return new CuratorReadWriteLock(new CuratorHandoffLock(curator, path, false, fairnessBound),
+                                    new CuratorHandoffLock(curator, path, true, fairnessBound));
+  }
 }
@@ -0,0 +1,309 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.liveramp.megadesk.core.state.Lock;
+
+// Keeps its ZooKeeper lock node after the last local holder unlocks, so that consecutive transactions from this
+// process acquire the lock without any ZooKeeper round trip. The node is given up as soon as a competing node
+// from another lock appears under the lock path, when the node itself disappears or the connection is suspended or
+// lost, or once the lock has been idle for the given timeout.
+public class CuratorRetainedLock implements Lock {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CuratorRetainedLock.class);
+
+  private static final ScheduledExecutorService IDLE_RELEASES = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("megadesk-lock-retention-%d").build());
+
+  private final CuratorFramework curator;
+  private final String path;
+  private final boolean exclusive;
+  private final long idleTimeoutMs;
+  private final CuratorAsyncLock lock;
+  // Local holders of an exclusive lock still exclude each other
+  private final Semaphore localPermit;
+  // Only one local thread acquires the ZooKeeper node at a time, the others then reuse it
+  private final ReentrantLock acquisition;
+  // The node may be gone with the session, so it must not be reused once the connection is in doubt
+  private final ConnectionStateListener connectionListener;
+
+  private String node;
+  private int holders;
+  private boolean revoked;
+  private ScheduledFuture<?> idleRelease;
+
+  public CuratorRetainedLock(CuratorFramework curator, String path, boolean exclusive, long idleTimeout, TimeUnit unit) {
+    this.curator = curator;
+    this.path = path;
+    this.exclusive = exclusive;
+    this.idleTimeoutMs = unit.toMillis(idleTimeout);
+    this.lock = new CuratorAsyncLock(curator, path, exclusive);
+    this.localPermit = new Semaphore(1);
+    this.acquisition = new ReentrantLock();
+    this.connectionListener = new ConnectionStateListener() {
+      @Override
+      public void stateChanged(CuratorFramework client, ConnectionState newState) {
+        if (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST) {
+          String retainedNode;
+          synchronized (CuratorRetainedLock.this) {
+            retainedNode = node;
+          }
+          if (retainedNode != null) {
+            revoke(retainedNode);
+          }
+        }
+      }
+    };
+  }
+
+  @Override
+  public void lock() {
+    if (exclusive) {
+      localPermit.acquireUninterruptibly();
+    }
+    try {
+      acquisition.lock();
+      try {
+        if (reuse(true)) {
+          return;
+        }
+        acquired(Futures.getUnchecked(lock.acquire(true)));
+      } finally {
+        acquisition.unlock();
+      }
+    } catch (RuntimeException e) {
+      if (exclusive) {
+        localPermit.release();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (exclusive && !localPermit.tryAcquire()) {
+      return false;
+    }
+    boolean result = false;
+    try {
+      if (acquisition.tryLock()) {
+        try {
+          if (reuse(false)) {
+            result = true;
+          } else if (!isRetained()) {
+            String acquired = Futures.getUnchecked(lock.acquire(false));
+            if (acquired != null) {
+              acquired(acquired);
+              result = true;
+            }
+          }
+        } finally {
+          acquisition.unlock();
+        }
+      }
+    } finally {
+      if (exclusive && !result) {
+        localPermit.release();
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void unlock() {
+    synchronized (this) {
+      if (holders == 0) {
+        throw new IllegalStateException("Lock " + path + " is not held");
+      }
+      --holders;
+      if (holders == 0) {
+        if (revoked) {
+          release();
+        } else {
+          scheduleIdleRelease();
+        }
+      }
+    }
+    if (exclusive) {
+      localPermit.release();
+    }
+  }
+
+  // Whether the ZooKeeper node is currently kept by this lock, held or not
+  public synchronized boolean isRetained() {
+    return node != null;
+  }
+
+  // Gives up the ZooKeeper node now if no local thread holds the lock
+  public synchronized void releaseIfIdle() {
+    if (node != null && holders == 0) {
+      release();
+    }
+  }
+
+  private synchronized boolean reuse(boolean wait) {
+    // A revoked node must not be reused: wait for it to be released and queue up behind the competitor
+    boolean interrupted = false;
+    while (wait && node != null && revoked) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (node == null || revoked) {
+      return false;
+    }
+    ++holders;
+    cancelIdleRelease();
+    return true;
+  }
+
+  private void acquired(String acquiredNode) {
+    synchronized (this) {
+      node = acquiredNode;
+      holders = 1;
+      revoked = false;
+    }
+    curator.getConnectionStateListenable().addListener(connectionListener);
+    watchCompetitors(acquiredNode);
+  }
+
+  private void release() {
+    cancelIdleRelease();
+    curator.getConnectionStateListenable().removeListener(connectionListener);
+    final String releasedNode = node;
+    Futures.addCallback(lock.release(releasedNode), new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void result) {
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        // The node remains until the session ends, and blocks other processes until then
+        LOG.error("Failed to release lock node " + releasedNode, t);
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    node = null;
+    revoked = false;
+    notifyAll();
+  }
+
+  private void scheduleIdleRelease() {
+    final String retainedNode = node;
+    idleRelease = IDLE_RELEASES.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (CuratorRetainedLock.this) {
+          if (retainedNode.equals(node) && holders == 0) {
+            release();
+          }
+        }
+      }
+    }, idleTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void cancelIdleRelease() {
+    if (idleRelease != null) {
+      idleRelease.cancel(false);
+      idleRelease = null;
+    }
+  }
+
+  // Watches the lock path for as long as the given node is retained
+  private void watchCompetitors(final String retainedNode) {
+    try {
+      curator.getChildren().usingWatcher(new CuratorWatcher() {
+        @Override
+        public void process(WatchedEvent event) throws Exception {
+          synchronized (CuratorRetainedLock.this) {
+            if (!retainedNode.equals(node)) {
+              return;
+            }
+          }
+          watchCompetitors(retainedNode);
+        }
+      }).inBackground(new BackgroundCallback() {
+        @Override
+        public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+          if (KeeperException.Code.get(event.getResultCode()) == KeeperException.Code.OK) {
+            competitors(retainedNode, event.getChildren());
+          } else {
+            revoke(retainedNode);
+          }
+        }
+      }).forPath(path);
+    } catch (Exception e) {
+      // Without a watch competitors would never be noticed, so do not retain the node
+      revoke(retainedNode);
+    }
+  }
+
+  private void competitors(String retainedNode, List<String> children) {
+    String retainedName = retainedNode.substring(retainedNode.lastIndexOf('/') + 1);
+    // The node is gone with an expired session, another process may hold the lock by now
+    if (!children.contains(retainedName)) {
+      revoke(retainedNode);
+      return;
+    }
+    for (String child : children) {
+      // Writers compete with every other node, readers only with writers
+      if (CuratorAsyncLock.isLockNode(child)
+          && !child.equals(retainedName)
+          && (exclusive || CuratorAsyncLock.isWriteLockNode(child))) {
+        revoke(retainedNode);
+        return;
+      }
+    }
+  }
+
+  private synchronized void revoke(String retainedNode) {
+    if (!retainedNode.equals(node)) {
+      return;
+    }
+    revoked = true;
+    if (holders == 0) {
+      release();
+    }
+  }
+}
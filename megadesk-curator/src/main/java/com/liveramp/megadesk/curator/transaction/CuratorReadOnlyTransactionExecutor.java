@@ -0,0 +1,178 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.transaction;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import com.liveramp.megadesk.base.transaction.BaseContext;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.transaction.Binding;
+import com.liveramp.megadesk.core.transaction.Condition;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.DependencyType;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.core.transaction.TransactionExecutionResult;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.core.transaction.VariableDependency;
+import com.liveramp.megadesk.curator.state.CuratorVersionedPersistence;
+
+// Runs read-only transactions over Curator variables without taking any lock. Values are read along with their node
+// versions, then confirmed all at once by a multi-op made only of version checks, and read again on mismatch.
+// Transactions that write, that depend on other variables, or that keep conflicting with writers are handed to the
+// fallback executor.
+public class CuratorReadOnlyTransactionExecutor implements TransactionExecutor {
+
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  private final TransactionExecutor fallback;
+  private final int maxAttempts;
+
+  public CuratorReadOnlyTransactionExecutor() {
+    this(new BaseTransactionExecutor(), DEFAULT_MAX_ATTEMPTS);
+  }
+
+  public CuratorReadOnlyTransactionExecutor(TransactionExecutor fallback, int maxAttempts) {
+    this.fallback = fallback;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Override
+  public <V> V execute(Transaction<V> transaction) throws Exception {
+    return execute(transaction, null);
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> tryExecute(Transaction<V> transaction) throws Exception {
+    return tryExecute(transaction, null);
+  }
+
+  @Override
+  public <V> V execute(Transaction<V> transaction, Binding binding) throws Exception {
+    TransactionExecutionResult<V> result = executeReadOnly(transaction, binding);
+    if (result.executed()) {
+      return result.result();
+    }
+    return fallback.execute(transaction, binding);
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> tryExecute(Transaction<V> transaction, Binding binding) throws Exception {
+    TransactionExecutionResult<V> result = executeReadOnly(transaction, binding);
+    if (result.executed()) {
+      return result;
+    }
+    return fallback.tryExecute(transaction, binding);
+  }
+
+  // Waiting for a condition is left to the fallback executor
+  @Override
+  public <V> V executeWhen(Transaction<V> transaction, Condition condition) throws Exception {
+    return fallback.executeWhen(transaction, condition);
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Condition condition, long timeout, TimeUnit unit) throws Exception {
+    return fallback.executeWhen(transaction, condition, timeout, unit);
+  }
+
+  @Override
+  public <V> V executeWhen(Transaction<V> transaction, Binding binding, Condition condition) throws Exception {
+    return fallback.executeWhen(transaction, binding, condition);
+  }
+
+  @Override
+  public <V> TransactionExecutionResult<V> executeWhen(Transaction<V> transaction, Binding binding, Condition condition, long timeout, TimeUnit unit) throws Exception {
+    return fallback.executeWhen(transaction, binding, condition, timeout, unit);
+  }
+
+  private <V> TransactionExecutionResult<V> executeReadOnly(Transaction<V> transaction, Binding binding) throws Exception {
+    Dependency dependency = BaseTransactionExecutor.bindDependency(transaction.dependency(), binding);
+    CuratorFramework curator = readOnlyCurator(dependency);
+    if (curator != null) {
+      for (int attempt = 0; attempt < maxAttempts; ++attempt) {
+        List<Object> values = Lists.newArrayList();
+        List<Stat> stats = Lists.newArrayList();
+        for (VariableDependency variableDependency : dependency.all()) {
+          Stat stat = new Stat();
+          values.add(versioned(variableDependency).read(stat));
+          stats.add(stat);
+        }
+        if (confirm(curator, dependency, stats)) {
+          return new TransactionExecutionResult<V>(true, transaction.run(new BaseContext(dependency, values)));
+        }
+      }
+    }
+    return new TransactionExecutionResult<V>(false, null);
+  }
+
+  // The framework shared by all variables if the dependency only reads versioned Curator variables, null otherwise
+  private static CuratorFramework readOnlyCurator(Dependency dependency) {
+    CuratorFramework result = null;
+    for (VariableDependency variableDependency : dependency.all()) {
+      if (variableDependency.type() != DependencyType.READ) {
+        return null;
+      }
+      Persistence persistence = variableDependency.variable().driver().persistence();
+      if (!(persistence instanceof CuratorVersionedPersistence)) {
+        return null;
+      }
+      CuratorFramework curator = ((CuratorVersionedPersistence)persistence).curator();
+      if (result != null && result != curator) {
+        return null;
+      }
+      result = curator;
+    }
+    return result;
+  }
+
+  // Whether none of the nodes changed since they were read
+  private static boolean confirm(CuratorFramework curator, Dependency dependency, List<Stat> stats) throws Exception {
+    List<VariableDependency> variableDependencies = dependency.all();
+    // A single read is consistent on its own
+    if (variableDependencies.size() < 2) {
+      return true;
+    }
+    CuratorTransaction transaction = curator.inTransaction();
+    CuratorTransactionFinal checks = null;
+    for (int i = 0; i < variableDependencies.size(); ++i) {
+      String path = versioned(variableDependencies.get(i)).path();
+      checks = transaction.check().withVersion(stats.get(i).getVersion()).forPath(path).and();
+      transaction = checks;
+    }
+    try {
+      checks.commit();
+      return true;
+    } catch (KeeperException.BadVersionException e) {
+      return false;
+    } catch (KeeperException.NoNodeException e) {
+      return false;
+    }
+  }
+
+  private static CuratorVersionedPersistence versioned(VariableDependency variableDependency) {
+    return (CuratorVersionedPersistence)variableDependency.variable().driver().persistence();
+  }
+}
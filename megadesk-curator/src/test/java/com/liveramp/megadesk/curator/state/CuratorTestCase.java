@@ -0,0 +1,119 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.KillSession;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.fail;
+
+// Runs an in-process ZooKeeper server. Each client has its own session, as separate processes would.
+public abstract class CuratorTestCase extends BaseTestCase {
+
+  private static final int SESSION_TIMEOUT_MS = 5000;
+  private static final int CONNECTION_TIMEOUT_MS = 5000;
+  private static final int WAIT_TIMEOUT_MS = 10000;
+
+  protected final SerializationHandler<Long> serializer = new LongSerializationHandler();
+
+  private TestingServer server;
+  private List<CuratorFramework> clients;
+
+  @Before
+  public void startServer() throws Exception {
+    server = new TestingServer();
+    clients = Lists.newArrayList();
+  }
+
+  @After
+  public void stopServer() throws Exception {
+    for (CuratorFramework client : clients) {
+      client.close();
+    }
+    server.close();
+  }
+
+  protected CuratorFramework newClient() {
+    // Nodes created without data are empty rather than holding the local address
+    CuratorFramework client = CuratorFrameworkFactory.builder()
+        .connectString(server.getConnectString())
+        .sessionTimeoutMs(SESSION_TIMEOUT_MS)
+        .connectionTimeoutMs(CONNECTION_TIMEOUT_MS)
+        .retryPolicy(new RetryOneTime(100))
+        .defaultData(new byte[0])
+        .build();
+    client.start();
+    clients.add(client);
+    return client;
+  }
+
+  protected TestingServer server() {
+    return server;
+  }
+
+  // Ends the session of the client as if it had timed out
+  protected void expireSession(CuratorFramework client) throws Exception {
+    KillSession.kill(client.getZookeeperClient().getZooKeeper(), server.getConnectString());
+  }
+
+  // Waits for a condition that depends on asynchronous notifications from ZooKeeper
+  protected static void waitUntil(Callable<Boolean> condition) throws Exception {
+    long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+    while (!condition.call()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Condition not met after " + WAIT_TIMEOUT_MS + "ms");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  protected static <VALUE> Variable<VALUE> variable(String name, Driver<VALUE> driver) {
+    return new BaseVariable<VALUE>(new Name<VALUE>(name), driver);
+  }
+
+  // Empty nodes read as null
+  private static class LongSerializationHandler implements SerializationHandler<Long> {
+
+    @Override
+    public byte[] serialize(Long value) throws IOException {
+      return value == null ? new byte[0] : Longs.toByteArray(value);
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) throws IOException {
+      return bytes == null || bytes.length != 8 ? null : Longs.fromByteArray(bytes);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.transaction.BaseAsyncTransactionExecutor;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.AsyncTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Composition;
+import com.liveramp.megadesk.recipes.transaction.IncrementLong;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCuratorAsyncLock extends CuratorTestCase {
+
+  private ExecutorService executor;
+
+  @Before
+  public void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testMutualExclusion() throws Exception {
+    final CuratorAsyncLock lockA = new CuratorAsyncLock(newClient(), "/lock", true);
+    CuratorAsyncLock lockB = new CuratorAsyncLock(newClient(), "/lock", true);
+
+    lockA.lockAsync().get(10, TimeUnit.SECONDS);
+    ListenableFuture<Void> acquired = lockB.lockAsync();
+    assertBlocked(acquired);
+    assertFalse(lockB.isLockOwned());
+
+    // Releasing from another thread than the one that acquired is allowed
+    executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        lockA.unlock();
+      }
+    }).get(10, TimeUnit.SECONDS);
+    acquired.get(10, TimeUnit.SECONDS);
+    assertTrue(lockB.isLockOwned());
+    assertFalse(lockA.tryLock());
+    lockB.unlockAsync().get(10, TimeUnit.SECONDS);
+    assertTrue(lockA.tryLock());
+    lockA.unlock();
+  }
+
+  @Test
+  public void testReadersExcludeWriters() throws Exception {
+    CuratorFramework clientA = newClient();
+    CuratorFramework clientB = newClient();
+    CuratorAsyncLock readA = new CuratorAsyncLock(clientA, "/lock", false);
+    CuratorAsyncLock readB = new CuratorAsyncLock(clientB, "/lock", false);
+    CuratorAsyncLock writeB = new CuratorAsyncLock(clientB, "/lock", true);
+
+    readA.lock();
+    assertTrue(readB.tryLock());
+    ListenableFuture<Void> acquired = writeB.lockAsync();
+    assertBlocked(acquired);
+    readB.unlock();
+    assertBlocked(acquired);
+    readA.unlock();
+    acquired.get(10, TimeUnit.SECONDS);
+    assertFalse(readA.tryLock());
+    writeB.unlock();
+  }
+
+  @Test
+  public void testInterProcessReadWriteLock() throws Exception {
+    CuratorAsyncLock lockA = new CuratorAsyncLock(newClient(), "/lock", true);
+    InterProcessReadWriteLock lockB = new InterProcessReadWriteLock(newClient(), "/lock");
+
+    // Both lock implementations exclude each other on the same path
+    assertTrue(lockB.writeLock().acquire(10, TimeUnit.SECONDS));
+    assertFalse(lockA.tryLock());
+    lockB.writeLock().release();
+    assertTrue(lockA.tryLock());
+    assertFalse(lockB.writeLock().acquire(100, TimeUnit.MILLISECONDS));
+    lockA.unlock();
+  }
+
+  @Test
+  public void testConcurrentTransactions() throws Exception {
+    List<Variable<Long>> variables = Lists.newArrayList();
+    List<AsyncTransactionExecutor> executors = Lists.newArrayList();
+    for (int i = 0; i < 2; ++i) {
+      variables.add(variable("counter", CuratorDriver.buildAsync("/counter", newClient(), serializer, executor)));
+      executors.add(new BaseAsyncTransactionExecutor(executor));
+    }
+    TransactionExecutor blockingExecutor = new BaseTransactionExecutor();
+    blockingExecutor.execute(new Write<Long>(variables.get(0), 0L));
+
+    // Increments from both processes are serialized by the lock, none of them is lost
+    List<ListenableFuture<Long>> results = Lists.newArrayList();
+    for (int i = 0; i < 50; ++i) {
+      for (int j = 0; j < 2; ++j) {
+        results.add(executors.get(j).executeAsync(new IncrementLong(variables.get(j))));
+      }
+    }
+    for (ListenableFuture<Long> result : results) {
+      result.get(30, TimeUnit.SECONDS);
+    }
+    assertEquals(Long.valueOf(100L), blockingExecutor.execute(new Read<Long>(variables.get(1))));
+  }
+
+  @Test
+  public void testSingleWriteCommitsInBackground() throws Exception {
+    final AtomicInteger commits = new AtomicInteger();
+    Executor commitExecutor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        commits.incrementAndGet();
+        executor.execute(command);
+      }
+    };
+    CuratorFramework client = newClient();
+    Variable<Long> v1 = variable("v1", CuratorDriver.buildAsync("/v1", client, serializer, commitExecutor));
+    Variable<Long> v2 = variable("v2", CuratorDriver.buildAsync("/v2", client, serializer, commitExecutor));
+    AsyncTransactionExecutor asyncExecutor = new BaseAsyncTransactionExecutor(executor);
+
+    asyncExecutor.executeAsync(new Write<Long>(v1, 1L)).get(10, TimeUnit.SECONDS);
+    assertEquals(0, commits.get());
+
+    // Writing both variables needs a multi-op, which is committed by the commit executor
+    asyncExecutor.executeAsync(new Composition(new Write<Long>(v1, 2L), new Write<Long>(v2, 2L))).get(10, TimeUnit.SECONDS);
+    assertEquals(1, commits.get());
+
+    TransactionExecutor blockingExecutor = new BaseTransactionExecutor();
+    assertEquals(Long.valueOf(2L), blockingExecutor.execute(new Read<Long>(v1)));
+    assertEquals(Long.valueOf(2L), blockingExecutor.execute(new Read<Long>(v2)));
+  }
+
+  private static void assertBlocked(ListenableFuture<?> future) throws Exception {
+    try {
+      future.get(200, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException e) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCuratorHandoffLock extends CuratorTestCase {
+
+  @Test
+  public void testMutualExclusion() throws Exception {
+    CuratorHandoffLock lockA = new CuratorHandoffLock(newClient(), "/lock", true, 3);
+    CuratorHandoffLock lockB = new CuratorHandoffLock(newClient(), "/lock", true, 3);
+
+    lockA.lock();
+    assertFalse(lockB.tryLock());
+    assertFalse(lockA.tryLock());
+    lockA.unlock();
+    assertTrue(lockB.tryLock());
+    assertFalse(lockA.tryLock());
+    lockB.unlock();
+  }
+
+  @Test
+  public void testLocalHandoff() throws Exception {
+    final CuratorFramework client = newClient();
+    final CuratorHandoffLock lock = new CuratorHandoffLock(client, "/lock", true, 3);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      lock.lock();
+      String node = client.getChildren().forPath("/lock").get(0);
+      Future<String> waiter = executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          lock.lock();
+          try {
+            return client.getChildren().forPath("/lock").get(0);
+          } finally {
+            lock.unlock();
+          }
+        }
+      });
+      waitUntil(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return lock.hasQueuedThreads();
+        }
+      });
+      lock.unlock();
+      // The waiting thread took over the node without creating a new one
+      assertEquals(node, waiter.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFairnessBound() throws Exception {
+    final int fairnessBound = 2;
+    final CuratorHandoffLock lockA = new CuratorHandoffLock(newClient(), "/lock", true, fairnessBound);
+    CuratorAsyncLock lockB = new CuratorAsyncLock(newClient(), "/lock", true);
+    final List<String> holders = Collections.synchronizedList(Lists.<String>newArrayList());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      lockA.lock();
+      List<Future<?>> threads = Lists.newArrayList();
+      for (int i = 0; i < 4; ++i) {
+        threads.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            for (int j = 0; j < 5; ++j) {
+              lockA.lock();
+              holders.add("A");
+              lockA.unlock();
+            }
+          }
+        }));
+      }
+      ListenableFuture<Void> acquiredB = lockB.lockAsync();
+      waitUntilChildren(newClient(), 2);
+      lockA.unlock();
+
+      // Local threads keep wanting the lock, yet B gets it after at most fairnessBound handoffs
+      acquiredB.get(10, TimeUnit.SECONDS);
+      holders.add("B");
+      lockB.unlock();
+      for (Future<?> thread : threads) {
+        thread.get(10, TimeUnit.SECONDS);
+      }
+      assertEquals(21, holders.size());
+      assertTrue(holders.toString(), holders.indexOf("B") <= fairnessBound);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReadersJoinHeldNode() throws Exception {
+    CuratorFramework client = newClient();
+    CuratorHandoffLock readA = new CuratorHandoffLock(client, "/lock", false, 3);
+    CuratorHandoffLock writeB = new CuratorHandoffLock(newClient(), "/lock", true, 3);
+
+    readA.lock();
+    assertTrue(readA.tryLock());
+    assertEquals(1, client.getChildren().forPath("/lock").size());
+    assertFalse(writeB.tryLock());
+    readA.unlock();
+    assertFalse(writeB.tryLock());
+    readA.unlock();
+    assertTrue(writeB.tryLock());
+    assertFalse(readA.tryLock());
+    writeB.unlock();
+  }
+
+  private static void waitUntilChildren(final CuratorFramework client, final int count) throws Exception {
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return client.getChildren().forPath("/lock").size() == count;
+      }
+    });
+  }
+}
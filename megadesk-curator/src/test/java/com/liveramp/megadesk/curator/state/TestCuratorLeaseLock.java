@@ -0,0 +1,126 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecution;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCuratorLeaseLock extends CuratorTestCase {
+
+  @Test
+  public void testMutualExclusion() throws Exception {
+    Lock lockA = new CuratorLeaseLock(newClient(), "/lease", 10, TimeUnit.SECONDS);
+    Lock lockB = new CuratorLeaseLock(newClient(), "/lease", 10, TimeUnit.SECONDS);
+
+    lockA.lock();
+    assertFalse(lockB.tryLock());
+    lockA.unlock();
+    assertTrue(lockB.tryLock());
+    assertFalse(lockA.tryLock());
+    lockB.unlock();
+  }
+
+  @Test
+  public void testExpiredLeaseIsTakenOver() throws Exception {
+    Lock lockA = new CuratorLeaseLock(newClient(), "/lease", 100, TimeUnit.MILLISECONDS);
+    Lock lockB = new CuratorLeaseLock(newClient(), "/lease", 10, TimeUnit.SECONDS);
+
+    lockA.lock();
+    assertFalse(lockB.tryLock());
+    Thread.sleep(300);
+    assertTrue(lockB.tryLock());
+    // Giving back a lease that was taken over does not fail, and does not free the lease of the new holder
+    lockA.unlock();
+    assertFalse(lockA.tryLock());
+    lockB.unlock();
+  }
+
+  @Test
+  public void testTakenOverLeaseFencesCommit() throws Exception {
+    CuratorFramework clientA = newClient();
+    CuratorFramework clientB = newClient();
+    Variable<Long> leasedA = variable("leased", CuratorDriver.buildLeased("/leased", clientA, serializer, 100, TimeUnit.MILLISECONDS));
+    Variable<Long> leasedB = variable("leased", CuratorDriver.buildLeased("/leased", clientB, serializer, 10, TimeUnit.SECONDS));
+    Variable<Long> otherA = variable("other", CuratorDriver.build("/other", clientA, serializer));
+    Driver<Long> otherB = CuratorDriver.build("/other", clientB, serializer);
+    TransactionExecutor executorB = new BaseTransactionExecutor();
+
+    BaseTransactionExecution execution = new BaseTransactionExecution();
+    Context context = execution.begin(BaseDependency.builder().writes(leasedA, otherA).build());
+    Thread.sleep(300);
+    // The lease expired, another process takes it over and commits
+    executorB.execute(new Write<Long>(leasedB, 2L));
+
+    context.write(leasedA, 1L);
+    context.write(otherA, 1L);
+    try {
+      execution.commit();
+      fail();
+    } catch (RuntimeException e) {
+      // Expected, the commit is fenced by the lease version
+    }
+    execution.abort();
+    assertEquals(Long.valueOf(2L), executorB.execute(new Read<Long>(leasedB)));
+    assertEquals(null, executorB.execute(new Read<Long>(variable("other", otherB))));
+
+    // Every lock of the failed transaction was released
+    assertTrue(otherB.lock().writeLock().tryLock());
+    otherB.lock().writeLock().unlock();
+  }
+
+  @Test
+  public void testTakenOverLeaseIsReleasedAfterCommit() throws Exception {
+    CuratorFramework clientA = newClient();
+    CuratorFramework clientB = newClient();
+    Variable<Long> leasedA = variable("leased", CuratorDriver.buildLeased("/leased", clientA, serializer, 100, TimeUnit.MILLISECONDS));
+    Variable<Long> leasedB = variable("leased", CuratorDriver.buildLeased("/leased", clientB, serializer, 10, TimeUnit.SECONDS));
+    Variable<Long> otherA = variable("other", CuratorDriver.build("/other", clientA, serializer));
+    Driver<Long> otherB = CuratorDriver.build("/other", clientB, serializer);
+    TransactionExecutor executorB = new BaseTransactionExecutor();
+
+    // The leased variable is only read, so the commit is not fenced and succeeds
+    BaseTransactionExecution execution = new BaseTransactionExecution();
+    Context context = execution.begin(BaseDependency.builder().reads(leasedA).writes(otherA).build());
+    Thread.sleep(300);
+    executorB.execute(new Write<Long>(leasedB, 2L));
+    context.write(otherA, 1L);
+    execution.commit();
+
+    // Giving back the lost lease did not keep the other locks from being released
+    assertEquals(Long.valueOf(1L), executorB.execute(new Read<Long>(variable("other", otherB))));
+    assertTrue(otherB.lock().writeLock().tryLock());
+    otherB.lock().writeLock().unlock();
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.liveramp.megadesk.core.state.ChangeListener;
+import com.liveramp.megadesk.core.state.Subscription;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestCuratorNodeWatch extends CuratorTestCase {
+
+  @Test
+  public void testNotifications() throws Exception {
+    CuratorLongPersistence watched = new CuratorLongPersistence(newClient(), "/counter", 0L);
+    CuratorLongPersistence writer = new CuratorLongPersistence(newClient(), "/counter", 0L);
+    final AtomicInteger changes = new AtomicInteger();
+    Subscription subscription = watched.subscribe(new ChangeListener() {
+      @Override
+      public void changed() {
+        changes.incrementAndGet();
+      }
+    });
+
+    // Loading the current value is not a change
+    Thread.sleep(200);
+    assertEquals(0, changes.get());
+    assertEquals(0, watched.version());
+
+    // Writes from another client are delivered
+    writer.writeLong(1L);
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return changes.get() == 1;
+      }
+    });
+    assertEquals(1, watched.readLong());
+    assertEquals(1, watched.version());
+
+    // The node is no longer watched once the last subscriber cancels
+    subscription.cancel();
+    writer.writeLong(2L);
+    Thread.sleep(200);
+    assertEquals(1, changes.get());
+  }
+}
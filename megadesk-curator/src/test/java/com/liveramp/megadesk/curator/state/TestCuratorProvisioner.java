@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestCuratorProvisioner extends CuratorTestCase {
+
+  @Test
+  public void testProvision() throws Exception {
+    CuratorFramework client = newClient();
+    client.create().forPath("/existing");
+
+    // Two operations per transaction forces the creations across several transactions
+    new CuratorProvisioner(client, 2).provision(Arrays.asList("/a/b/c", "/a/d", "/e", "/existing/f"));
+
+    for (String path : Arrays.asList("/a", "/a/b", "/a/b/c", "/a/d", "/e", "/existing", "/existing/f")) {
+      assertNotNull(path, client.checkExists().forPath(path));
+    }
+  }
+
+  @Test
+  public void testConcurrentProvisioning() throws Exception {
+    final List<String> paths = Lists.newArrayList();
+    for (int i = 0; i < 50; ++i) {
+      paths.add("/shared/" + i + "/node");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int i = 0; i < 2; ++i) {
+        final CuratorFramework client = newClient();
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            // Both processes race to create the same nodes, neither of them fails
+            new CuratorProvisioner(client, 10).provision(paths);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    CuratorFramework client = newClient();
+    for (String path : paths) {
+      assertNotNull(path, client.checkExists().forPath(path));
+    }
+  }
+
+  @Test
+  public void testBuildAll() throws Exception {
+    CuratorFramework clientA = newClient();
+    CuratorFramework clientB = newClient();
+    List<Driver<Long>> driversA = CuratorDriver.buildAll(Arrays.asList("/v/1", "/v/2"), clientA, serializer);
+    assertNotNull(clientA.checkExists().forPath("/v/1/lock"));
+    assertNotNull(clientA.checkExists().forPath("/v/2/lock"));
+
+    // Drivers built in bulk share their nodes and locks with drivers built one by one
+    Driver<Long> driverB = CuratorDriver.build("/v/1", clientB, serializer);
+    TransactionExecutor executor = new BaseTransactionExecutor();
+    executor.execute(new Write<Long>(variable("v1", driversA.get(0)), 1L));
+    assertEquals(Long.valueOf(1L), executor.execute(new Read<Long>(variable("v1", driverB))));
+    assertEquals(null, executor.execute(new Read<Long>(variable("v2", driversA.get(1)))));
+
+    Lock lockA = driversA.get(0).lock().writeLock();
+    Lock lockB = driverB.lock().writeLock();
+    lockA.lock();
+    assertFalse(lockB.tryLock());
+    lockA.unlock();
+    assertTrue(lockB.tryLock());
+    lockB.unlock();
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.state;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCuratorRetainedLock extends CuratorTestCase {
+
+  @Test
+  public void testNodeIsRetained() throws Exception {
+    CuratorFramework client = newClient();
+    CuratorRetainedLock lock = new CuratorRetainedLock(client, "/lock", true, 10, TimeUnit.SECONDS);
+
+    lock.lock();
+    String node = client.getChildren().forPath("/lock").get(0);
+    lock.unlock();
+    assertTrue(lock.isRetained());
+
+    // The next transaction reuses the same node
+    assertTrue(lock.tryLock());
+    assertEquals(1, client.getChildren().forPath("/lock").size());
+    assertEquals(node, client.getChildren().forPath("/lock").get(0));
+    lock.unlock();
+
+    lock.releaseIfIdle();
+    assertFalse(lock.isRetained());
+    waitUntilChildren(client, 0);
+  }
+
+  @Test
+  public void testMutualExclusion() throws Exception {
+    CuratorRetainedLock lockA = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+    CuratorRetainedLock lockB = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+
+    lockA.lock();
+    assertFalse(lockB.tryLock());
+    // Local holders exclude each other as well
+    assertFalse(lockA.tryLock());
+    lockA.unlock();
+    // The node is still retained by A, so B cannot get it without waiting
+    assertFalse(lockB.tryLock());
+    lockA.releaseIfIdle();
+    assertTrue(lockB.tryLock());
+    lockB.unlock();
+  }
+
+  @Test
+  public void testRetainedNodeIsRevokedByCompetitor() throws Exception {
+    CuratorRetainedLock lockA = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+    CuratorRetainedLock lockB = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+
+    lockA.lock();
+    lockA.unlock();
+    assertTrue(lockA.isRetained());
+
+    // B queues up behind the retained node, which A gives up as it is not held
+    lockB.lock();
+    assertFalse(lockA.isRetained());
+    assertFalse(lockA.tryLock());
+    lockB.unlock();
+    lockB.releaseIfIdle();
+  }
+
+  @Test
+  public void testHeldNodeIsRevokedByCompetitor() throws Exception {
+    CuratorRetainedLock lockA = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+    final CuratorAsyncLock lockB = new CuratorAsyncLock(newClient(), "/lock", true);
+
+    lockA.lock();
+    lockB.lockAsync();
+    waitUntilChildren(newClient(), 2);
+    // The node is given up when unlocked rather than after the idle timeout
+    lockA.unlock();
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return lockB.isLockOwned();
+      }
+    });
+    assertFalse(lockA.isRetained());
+    lockB.unlock();
+  }
+
+  @Test
+  public void testIdleTimeout() throws Exception {
+    CuratorFramework client = newClient();
+    final CuratorRetainedLock lock = new CuratorRetainedLock(client, "/lock", true, 100, TimeUnit.MILLISECONDS);
+
+    lock.lock();
+    lock.unlock();
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return !lock.isRetained();
+      }
+    });
+    waitUntilChildren(client, 0);
+  }
+
+  @Test
+  public void testSharedLocksDoNotCompete() throws Exception {
+    CuratorRetainedLock readA = new CuratorRetainedLock(newClient(), "/lock", false, 10, TimeUnit.SECONDS);
+    CuratorRetainedLock readB = new CuratorRetainedLock(newClient(), "/lock", false, 10, TimeUnit.SECONDS);
+
+    readA.lock();
+    readA.unlock();
+    readB.lock();
+    readB.unlock();
+    Thread.sleep(200);
+    // Readers do not revoke each other
+    assertTrue(readA.isRetained());
+    assertTrue(readB.isRetained());
+    readA.releaseIfIdle();
+    readB.releaseIfIdle();
+  }
+
+  @Test
+  public void testSessionLoss() throws Exception {
+    CuratorFramework clientA = newClient();
+    final CuratorRetainedLock lockA = new CuratorRetainedLock(clientA, "/lock", true, 10, TimeUnit.SECONDS);
+    CuratorRetainedLock lockB = new CuratorRetainedLock(newClient(), "/lock", true, 10, TimeUnit.SECONDS);
+
+    lockA.lock();
+    lockA.unlock();
+    expireSession(clientA);
+
+    // The node is gone with the session, so it must not be reused
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return !lockA.isRetained();
+      }
+    });
+    assertTrue(lockB.tryLock());
+    lockB.unlock();
+    lockB.releaseIfIdle();
+
+    // A acquires a new node once reconnected
+    lockA.lock();
+    assertTrue(lockA.isRetained());
+    lockA.unlock();
+    lockA.releaseIfIdle();
+  }
+
+  @Test
+  public void testConnectionSuspended() throws Exception {
+    CuratorFramework client = newClient();
+    final CuratorRetainedLock lock = new CuratorRetainedLock(client, "/lock", true, 10, TimeUnit.SECONDS);
+
+    lock.lock();
+    lock.unlock();
+    server().stop();
+
+    // The node may be lost while disconnected, so it is no longer retained
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return !lock.isRetained();
+      }
+    });
+    server().restart();
+  }
+
+  private static void waitUntilChildren(final CuratorFramework client, final int count) throws Exception {
+    waitUntil(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return client.getChildren().forPath("/lock").size() == count;
+      }
+    });
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.curator.transaction;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.Test;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Lock;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Binding;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.curator.state.CuratorDriver;
+import com.liveramp.megadesk.curator.state.CuratorTestCase;
+import com.liveramp.megadesk.recipes.transaction.Composition;
+import com.liveramp.megadesk.recipes.transaction.Write;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestCuratorReadOnlyTransactionExecutor extends CuratorTestCase {
+
+  @Test
+  public void testReadsWithoutLocks() throws Exception {
+    CuratorFramework clientA = newClient();
+    CuratorFramework clientB = newClient();
+    Variable<Long> a = variable("a", CuratorDriver.build("/a", clientA, serializer));
+    Variable<Long> b = variable("b", CuratorDriver.build("/b", clientA, serializer));
+    new BaseTransactionExecutor().execute(new Composition(new Write<Long>(a, 1L), new Write<Long>(b, -1L)));
+    CountingExecutor fallback = new CountingExecutor();
+    TransactionExecutor executor = new CuratorReadOnlyTransactionExecutor(fallback, 3);
+
+    // Another process holding the write lock does not block readers
+    Lock lock = CuratorDriver.build("/a", clientB, serializer).lock().writeLock();
+    lock.lock();
+    try {
+      assertEquals(Long.valueOf(0L), executor.execute(new Sum(a, b)));
+    } finally {
+      lock.unlock();
+    }
+    assertEquals(0, fallback.executions.get());
+  }
+
+  @Test
+  public void testConcurrentWriter() throws Exception {
+    CuratorFramework reader = newClient();
+    CuratorFramework writer = newClient();
+    Variable<Long> a = variable("a", CuratorDriver.build("/a", reader, serializer));
+    Variable<Long> b = variable("b", CuratorDriver.build("/b", reader, serializer));
+    final Variable<Long> writerA = variable("a", CuratorDriver.build("/a", writer, serializer));
+    final Variable<Long> writerB = variable("b", CuratorDriver.build("/b", writer, serializer));
+    final TransactionExecutor writerExecutor = new BaseTransactionExecutor();
+    writerExecutor.execute(new Composition(new Write<Long>(writerA, 0L), new Write<Long>(writerB, 0L)));
+    TransactionExecutor executor = new CuratorReadOnlyTransactionExecutor(new CountingExecutor(), 1);
+
+    ExecutorService writerThread = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> transfers = writerThread.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < 100; ++i) {
+            writerExecutor.execute(new Transfer(writerA, writerB));
+          }
+          return null;
+        }
+      });
+      // Whether confirmed by version checks or read by the fallback under locks, reads never see half a transfer
+      while (!transfers.isDone()) {
+        assertEquals(Long.valueOf(0L), executor.execute(new Sum(a, b)));
+      }
+      transfers.get();
+    } finally {
+      writerThread.shutdownNow();
+    }
+    assertEquals(Long.valueOf(0L), executor.execute(new Sum(a, b)));
+  }
+
+  @Test
+  public void testFallbackOnConflicts() throws Exception {
+    final CuratorFramework writer = newClient();
+    CuratorFramework client = newClient();
+    // Every read of b is immediately followed by a write from another process, so version checks always fail
+    SerializationHandler<Long> interfering = new SerializationHandler<Long>() {
+      @Override
+      public byte[] serialize(Long value) throws IOException {
+        return serializer.serialize(value);
+      }
+
+      @Override
+      public Long deserialize(byte[] bytes) throws IOException {
+        try {
+          writer.setData().forPath("/b", bytes);
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+        return serializer.deserialize(bytes);
+      }
+    };
+    Variable<Long> a = variable("a", CuratorDriver.build("/a", client, serializer));
+    Variable<Long> b = variable("b", CuratorDriver.build("/b", client, interfering));
+    new BaseTransactionExecutor().execute(new Composition(new Write<Long>(a, 1L), new Write<Long>(b, -1L)));
+    CountingExecutor fallback = new CountingExecutor();
+    TransactionExecutor executor = new CuratorReadOnlyTransactionExecutor(fallback, 3);
+
+    assertEquals(Long.valueOf(0L), executor.execute(new Sum(a, b)));
+    assertEquals(1, fallback.executions.get());
+  }
+
+  @Test
+  public void testWritesUseFallback() throws Exception {
+    Variable<Long> a = variable("a", CuratorDriver.build("/a", newClient(), serializer));
+    CountingExecutor fallback = new CountingExecutor();
+    TransactionExecutor executor = new CuratorReadOnlyTransactionExecutor(fallback, 3);
+
+    executor.execute(new Write<Long>(a, 1L));
+    assertEquals(1, fallback.executions.get());
+    assertEquals(Long.valueOf(1L), executor.execute(new Sum(a)));
+    assertEquals(1, fallback.executions.get());
+  }
+
+  private static class Sum extends BaseTransaction<Long> {
+
+    private final List<Variable<Long>> variables;
+
+    @SuppressWarnings("unchecked")
+    private Sum(Variable<Long>... variables) {
+      super(BaseDependency.builder().reads(variables).build());
+      this.variables = Lists.newArrayList(variables);
+    }
+
+    @Override
+    public Long run(Context context) throws Exception {
+      long result = 0;
+      for (Variable<Long> variable : variables) {
+        result += context.read(variable);
+      }
+      return result;
+    }
+  }
+
+  // Moves one unit from b to a, so that a and b always add up to zero
+  private static class Transfer extends BaseTransaction<Void> {
+
+    private final Variable<Long> a;
+    private final Variable<Long> b;
+
+    private Transfer(Variable<Long> a, Variable<Long> b) {
+      super(BaseDependency.builder().writes(a, b).build());
+      this.a = a;
+      this.b = b;
+    }
+
+    @Override
+    public Void run(Context context) throws Exception {
+      context.write(a, context.read(a) + 1);
+      context.write(b, context.read(b) - 1);
+      return null;
+    }
+  }
+
+  private static class CountingExecutor extends BaseTransactionExecutor {
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Override
+    public <V> V execute(Transaction<V> transaction, Binding binding) throws Exception {
+      executions.incrementAndGet();
+      return super.execute(transaction, binding);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import com.liveramp.megadesk.core.state.Lock;
+
+public class FileRangeLock implements Lock {
+
+  private final LockFile lockFile;
+  private final boolean shared;
+
+  FileRangeLock(LockFile lockFile, boolean shared) {
+    this.lockFile = lockFile;
+    this.shared = shared;
+  }
+
+  @Override
+  public void lock() {
+    if (shared) {
+      lockFile.lockShared();
+    } else {
+      lockFile.lockExclusive();
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (shared) {
+      return lockFile.tryLockShared();
+    } else {
+      return lockFile.tryLockExclusive();
+    }
+  }
+
+  @Override
+  public void unlock() {
+    if (shared) {
+      lockFile.unlockShared();
+    } else {
+      lockFile.unlockExclusive();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.liveramp.megadesk.base.state.BaseReadWriteLock;
+import com.liveramp.megadesk.core.state.ReadWriteLock;
+
+public class FileReadWriteLock extends BaseReadWriteLock implements ReadWriteLock {
+
+  private final LockFile lockFile;
+
+  FileReadWriteLock(File file) {
+    this(new LockFile(file));
+  }
+
+  private FileReadWriteLock(LockFile lockFile) {
+    super(new FileRangeLock(lockFile, true),
+        new FileRangeLock(lockFile, false));
+    this.lockFile = lockFile;
+  }
+
+  void close() throws IOException {
+    lockFile.close();
+  }
+}
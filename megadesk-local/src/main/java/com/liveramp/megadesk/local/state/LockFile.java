@@ -0,0 +1,141 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// FileChannel range locks are held on behalf of the whole JVM, so threads are first
+// coordinated with an in-process lock, and only then with other processes.
+// All shared holders in this process share a single shared range lock.
+class LockFile {
+
+  private final FileChannel channel;
+  private final ReentrantReadWriteLock local;
+  private FileLock sharedLock;
+  private int sharedHolders;
+  private FileLock exclusiveLock;
+
+  LockFile(File file) {
+    try {
+      this.channel = new RandomAccessFile(file, "rw").getChannel();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    this.local = new ReentrantReadWriteLock();
+    this.sharedHolders = 0;
+  }
+
+  void close() throws IOException {
+    channel.close();
+  }
+
+  void lockShared() {
+    local.readLock().lock();
+    try {
+      synchronized (this) {
+        if (sharedHolders == 0) {
+          sharedLock = channel.lock(0, Long.MAX_VALUE, true);
+        }
+        sharedHolders++;
+      }
+    } catch (IOException e) {
+      local.readLock().unlock();
+      throw new RuntimeException(e);
+    }
+  }
+
+  boolean tryLockShared() {
+    if (!local.readLock().tryLock()) {
+      return false;
+    }
+    try {
+      synchronized (this) {
+        if (sharedHolders == 0) {
+          sharedLock = channel.tryLock(0, Long.MAX_VALUE, true);
+          if (sharedLock == null) {
+            local.readLock().unlock();
+            return false;
+          }
+        }
+        sharedHolders++;
+        return true;
+      }
+    } catch (IOException e) {
+      local.readLock().unlock();
+      throw new RuntimeException(e);
+    }
+  }
+
+  void unlockShared() {
+    try {
+      synchronized (this) {
+        sharedHolders--;
+        if (sharedHolders == 0) {
+          sharedLock.release();
+          sharedLock = null;
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      local.readLock().unlock();
+    }
+  }
+
+  void lockExclusive() {
+    local.writeLock().lock();
+    try {
+      exclusiveLock = channel.lock(0, Long.MAX_VALUE, false);
+    } catch (IOException e) {
+      local.writeLock().unlock();
+      throw new RuntimeException(e);
+    }
+  }
+
+  boolean tryLockExclusive() {
+    if (!local.writeLock().tryLock()) {
+      return false;
+    }
+    try {
+      exclusiveLock = channel.tryLock(0, Long.MAX_VALUE, false);
+      if (exclusiveLock == null) {
+        local.writeLock().unlock();
+        return false;
+      }
+      return true;
+    } catch (IOException e) {
+      local.writeLock().unlock();
+      throw new RuntimeException(e);
+    }
+  }
+
+  void unlockExclusive() {
+    try {
+      exclusiveLock.release();
+      exclusiveLock = null;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      local.writeLock().unlock();
+    }
+  }
+}
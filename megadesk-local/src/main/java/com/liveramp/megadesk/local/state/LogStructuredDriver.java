@@ -0,0 +1,49 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.IOException;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.BaseDriver;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.ReadWriteLock;
+
+public class LogStructuredDriver {
+
+  public static <VALUE> Driver<VALUE> build(String name,
+                                            LogStructuredStore store,
+                                            SerializationHandler<VALUE> serializer) {
+
+    ReadWriteLock lock = store.lock(name);
+    Persistence<VALUE> persistence = new LogStructuredPersistence<VALUE>(store, name, serializer);
+    return new BaseDriver<VALUE>(persistence, lock);
+  }
+
+  public static <VALUE> Driver<VALUE> build(String name,
+                                            LogStructuredStore store,
+                                            SerializationHandler<VALUE> serializer,
+                                            VALUE initialValue) {
+    try {
+      store.writeIfAbsent(name, serializer.serialize(initialValue));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return build(name, store, serializer);
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+
+public class LogStructuredPersistenceTransaction implements PersistenceTransaction {
+
+  private final LogStructuredStore store;
+  private final Map<String, byte[]> writes;
+
+  public LogStructuredPersistenceTransaction(LogStructuredStore store) {
+    this.store = store;
+    this.writes = Maps.newLinkedHashMap();
+  }
+
+  public void write(String name, byte[] serializedValue) {
+    writes.put(name, serializedValue);
+  }
+
+  @Override
+  public void commit() {
+    store.commit(writes);
+  }
+}
@@ -0,0 +1,490 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.liveramp.megadesk.base.state.InMemoryReadWriteLock;
+import com.liveramp.megadesk.core.state.ReadWriteLock;
+import com.liveramp.megadesk.utils.FormatUtils;
+
+// Every commit is appended as a single record to a write-ahead log, values are served from an in-memory index.
+// Committers that append concurrently share a single fsync, records are applied to the index only once durable. Once the log grows past a threshold,
+// the index is written to a snapshot and the log is truncated. Recovery loads the snapshot and replays the log tail.
+public class LogStructuredStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LogStructuredStore.class);
+
+  public static final long DEFAULT_SNAPSHOT_THRESHOLD = 64 * 1024 * 1024;
+
+  private static final String LOG_FILE = "wal.log";
+  private static final String SNAPSHOT_FILE = "snapshot";
+  private static final String SNAPSHOT_TMP_FILE = "snapshot.tmp";
+  private static final String SNAPSHOT_OLD_FILE = "snapshot.old";
+  private static final String OWNER_FILE = "owner.lock";
+  private static final int RECORD_HEADER_SIZE = 12;
+  private static final long SNAPSHOT_MAGIC = 0x4d444b534e415053L;
+
+  private static final Map<File, LogStructuredStore> STORES = Maps.newHashMap();
+
+  private final File directory;
+  private final long snapshotThreshold;
+  private final FileChannel log;
+  private final FileChannel owner;
+  private final FileLock ownerLock;
+  private final ConcurrentMap<String, byte[]> index;
+  private final Map<String, ReadWriteLock> locks;
+  // Records appended but not yet applied to the index, in log order
+  private final Queue<PendingRecord> pending;
+
+  private final Object appendLock = new Object();
+  private final Object syncLock = new Object();
+  private long sequence;
+  // Total number of bytes ever appended, and made durable, over the lifetime of the store
+  private volatile long written;
+  private volatile long synced;
+  // Value of written when the log was last truncated
+  private volatile long logBase;
+  // Set once an fsync failed, see fail
+  private volatile boolean failed;
+
+  private LogStructuredStore(File directory, long snapshotThreshold) throws IOException {
+    this.directory = directory;
+    this.snapshotThreshold = snapshotThreshold;
+    this.owner = new RandomAccessFile(new File(directory, OWNER_FILE), "rw").getChannel();
+    this.ownerLock = owner.tryLock();
+    if (ownerLock == null) {
+      owner.close();
+      throw new IOException("Store " + directory + " is already open in another process");
+    }
+    this.index = Maps.newConcurrentMap();
+    this.locks = Maps.newHashMap();
+    this.pending = Lists.newLinkedList();
+    this.log = new RandomAccessFile(new File(directory, LOG_FILE), "rw").getChannel();
+    recover();
+  }
+
+  public static LogStructuredStore open(File directory) {
+    return open(directory, DEFAULT_SNAPSHOT_THRESHOLD);
+  }
+
+  public static LogStructuredStore open(File directory, long snapshotThreshold) {
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Could not create directory " + directory);
+      }
+      File canonicalDirectory = directory.getCanonicalFile();
+      synchronized (STORES) {
+        LogStructuredStore store = STORES.get(canonicalDirectory);
+        if (store == null) {
+          store = new LogStructuredStore(canonicalDirectory, snapshotThreshold);
+          STORES.put(canonicalDirectory, store);
+        }
+        return store;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public byte[] read(String name) {
+    return index.get(name);
+  }
+
+  public void write(String name, byte[] value) {
+    commit(Collections.singletonMap(name, value));
+  }
+
+  public void writeIfAbsent(String name, byte[] value) {
+    commit(Collections.singletonMap(name, value), true);
+  }
+
+  public void commit(Map<String, byte[]> writes) {
+    commit(writes, false);
+  }
+
+  public ReadWriteLock lock(String name) {
+    synchronized (locks) {
+      ReadWriteLock lock = locks.get(name);
+      if (lock == null) {
+        lock = new InMemoryReadWriteLock();
+        locks.put(name, lock);
+      }
+      return lock;
+    }
+  }
+
+  // Writes the whole index to a snapshot and truncates the log
+  public void snapshot() {
+    try {
+      synchronized (syncLock) {
+        synchronized (appendLock) {
+          ensureNotFailed();
+          log.force(false);
+          synced = written;
+          applySynced();
+          writeSnapshot();
+          log.truncate(0);
+          log.force(false);
+          logBase = written;
+          synced = written;
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void close() {
+    synchronized (STORES) {
+      try {
+        synchronized (syncLock) {
+          synchronized (appendLock) {
+            log.force(false);
+            log.close();
+            ownerLock.release();
+            owner.close();
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      } finally {
+        if (STORES.get(directory) == this) {
+          STORES.remove(directory);
+        }
+      }
+    }
+  }
+
+  private void commit(Map<String, byte[]> writes, boolean onlyIfAbsent) {
+    if (writes.isEmpty()) {
+      return;
+    }
+    try {
+      long end;
+      synchronized (appendLock) {
+        ensureNotFailed();
+        if (onlyIfAbsent) {
+          for (String name : writes.keySet()) {
+            if (index.containsKey(name) || isPending(name)) {
+              return;
+            }
+          }
+        }
+        byte[] record = encodeRecord(++sequence, writes);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        long position = written - logBase;
+        while (buffer.hasRemaining()) {
+          position += log.write(buffer, position);
+        }
+        written += record.length;
+        end = written;
+        pending.add(new PendingRecord(writes, end));
+      }
+      sync(end);
+      synchronized (appendLock) {
+        applySynced();
+      }
+      if (end - logBase > snapshotThreshold) {
+        snapshot();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Group commit: a single fsync makes every record appended so far durable,
+  // committers that were waiting behind it find their record already synced
+  private void sync(long end) throws IOException {
+    synchronized (syncLock) {
+      if (synced >= end) {
+        return;
+      }
+      ensureNotFailed();
+      long target = written;
+      try {
+        log.force(false);
+      } catch (IOException e) {
+        fail();
+        throw e;
+      }
+      synced = target;
+    }
+  }
+
+  // After a failed fsync, the records past the last synced offset may or may not be durable. Their committers are
+  // told they failed, so the records are dropped, and the store rejects any further commit until it is reopened.
+  private void fail() {
+    synchronized (appendLock) {
+      failed = true;
+      Iterator<PendingRecord> iterator = pending.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().end > synced) {
+          iterator.remove();
+        }
+      }
+      written = synced;
+      try {
+        log.truncate(synced - logBase);
+      } catch (IOException e) {
+        // Recovery may then replay some of the dropped records
+        LOG.warn("Could not truncate unsynced records from the log in " + directory, e);
+      }
+    }
+  }
+
+  private void ensureNotFailed() {
+    if (failed) {
+      throw new IllegalStateException("Store " + directory + " failed to sync its log and must be reopened");
+    }
+  }
+
+  // Must be called while holding appendLock, so that records are applied in log order
+  private void applySynced() {
+    while (!pending.isEmpty() && pending.peek().end <= synced) {
+      apply(pending.poll().writes);
+    }
+  }
+
+  private boolean isPending(String name) {
+    for (PendingRecord record : pending) {
+      if (record.writes.containsKey(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void apply(Map<String, byte[]> writes) {
+    for (Map.Entry<String, byte[]> entry : writes.entrySet()) {
+      if (entry.getValue() == null) {
+        index.remove(entry.getKey());
+      } else {
+        index.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void recover() throws IOException {
+    long snapshotSequence = readSnapshot();
+    sequence = snapshotSequence;
+    long size = log.size();
+    int records = 0;
+    long position = 0;
+    while (true) {
+      RecoveredRecord record = readRecord(position, size);
+      if (record == null) {
+        break;
+      }
+      // Records already covered by the snapshot are skipped
+      if (record.sequence > snapshotSequence) {
+        apply(record.writes);
+        sequence = record.sequence;
+        records++;
+      }
+      position = record.end;
+    }
+    if (position < size) {
+      LOG.warn("Discarding " + (size - position) + " bytes of incomplete log records in " + directory);
+      log.truncate(position);
+      log.force(false);
+    }
+    written = position;
+    synced = position;
+    logBase = 0;
+    LOG.info("Recovered " + index.size() + " values from " + directory + " (" + records + " log records replayed)");
+  }
+
+  private long readSnapshot() throws IOException {
+    File file = new File(directory, SNAPSHOT_FILE);
+    if (!file.exists()) {
+      // A crash between the two renames of writeSnapshot leaves only the previous snapshot
+      file = new File(directory, SNAPSHOT_OLD_FILE);
+      if (!file.exists()) {
+        return 0;
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Files.toByteArray(file));
+    try {
+      if (buffer.getLong() != SNAPSHOT_MAGIC) {
+        throw new IOException("Invalid snapshot " + file);
+      }
+      long snapshotSequence = buffer.getLong();
+      Map<String, byte[]> values = WriteSets.decode(buffer);
+      int length = buffer.position();
+      if (buffer.getLong() != WriteSets.checksum(buffer.array(), 0, length)) {
+        throw new IOException("Corrupted snapshot " + file);
+      }
+      apply(values);
+      return snapshotSequence;
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupted snapshot " + file, e);
+    }
+  }
+
+  // The snapshot is written to a temporary file and then renamed, so that a valid snapshot always exists.
+  // The directory is synced afterwards so that the rename is durable before the log is truncated.
+  private void writeSnapshot() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeLong(SNAPSHOT_MAGIC);
+    output.writeLong(sequence);
+    WriteSets.encode(output, Maps.newHashMap(index));
+    output.flush();
+    output.writeLong(WriteSets.checksum(bytes.toByteArray(), 0, bytes.size()));
+    output.flush();
+    File tmp = new File(directory, SNAPSHOT_TMP_FILE);
+    FileOutputStream stream = new FileOutputStream(tmp);
+    try {
+      bytes.writeTo(stream);
+      stream.getFD().sync();
+    } finally {
+      stream.close();
+    }
+    File file = new File(directory, SNAPSHOT_FILE);
+    if (!tmp.renameTo(file)) {
+      // Some platforms do not rename over an existing file, the previous snapshot is moved aside first
+      File old = new File(directory, SNAPSHOT_OLD_FILE);
+      if ((old.exists() && !old.delete()) || !file.renameTo(old)) {
+        throw new IOException("Could not rename " + file + " to " + old);
+      }
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Could not rename " + tmp + " to " + file);
+      }
+      syncDirectory();
+      if (!old.delete()) {
+        LOG.warn("Could not delete previous snapshot " + old);
+      }
+    } else {
+      syncDirectory();
+    }
+  }
+
+  private void syncDirectory() throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      // Some platforms cannot open a directory, renames are durable there without it
+      LOG.debug("Could not open " + directory + " to sync it", e);
+      return;
+    }
+    try {
+      channel.force(true);
+    } finally {
+      channel.close();
+    }
+  }
+
+  // Record layout: payload length, payload checksum, payload (sequence number and write set)
+  private static byte[] encodeRecord(long sequence, Map<String, byte[]> writes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(0);
+    output.writeLong(0);
+    output.writeLong(sequence);
+    WriteSets.encode(output, writes);
+    output.flush();
+    byte[] record = bytes.toByteArray();
+    int payloadLength = record.length - RECORD_HEADER_SIZE;
+    ByteBuffer header = ByteBuffer.wrap(record, 0, RECORD_HEADER_SIZE);
+    header.putInt(payloadLength);
+    header.putLong(WriteSets.checksum(record, RECORD_HEADER_SIZE, payloadLength));
+    return record;
+  }
+
+  // Reads one record at a time so that logs larger than a single buffer can be recovered
+  private RecoveredRecord readRecord(long position, long size) throws IOException {
+    if (position + RECORD_HEADER_SIZE > size) {
+      return null;
+    }
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    readFully(header, position);
+    int payloadLength = header.getInt(0);
+    long checksum = header.getLong(4);
+    long payloadStart = position + RECORD_HEADER_SIZE;
+    if (payloadLength < 0 || payloadStart + payloadLength > size) {
+      return null;
+    }
+    ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+    readFully(payload, payloadStart);
+    if (checksum != WriteSets.checksum(payload.array(), 0, payloadLength)) {
+      return null;
+    }
+    payload.flip();
+    long sequence = payload.getLong();
+    return new RecoveredRecord(sequence, WriteSets.decode(payload), payloadStart + payloadLength);
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (log.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of log in " + directory);
+      }
+    }
+  }
+
+  private static class PendingRecord {
+
+    private final Map<String, byte[]> writes;
+    private final long end;
+
+    private PendingRecord(Map<String, byte[]> writes, long end) {
+      this.writes = writes;
+      this.end = end;
+    }
+  }
+
+  private static class RecoveredRecord {
+
+    private final long sequence;
+    private final Map<String, byte[]> writes;
+    private final long end;
+
+    private RecoveredRecord(long sequence, Map<String, byte[]> writes, long end) {
+      this.sequence = sequence;
+      this.writes = writes;
+      this.end = end;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return FormatUtils.formatToString(this, directory.toString());
+  }
+}
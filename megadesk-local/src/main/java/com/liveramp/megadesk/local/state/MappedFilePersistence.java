@@ -0,0 +1,59 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.recipes.state.persistence.SerializationPersistence;
+
+public class MappedFilePersistence<VALUE> extends SerializationPersistence<VALUE> implements Persistence<VALUE> {
+
+  private final MappedFileStore store;
+  private final String name;
+
+  public MappedFilePersistence(MappedFileStore store, String name, SerializationHandler<VALUE> serializer) {
+    super(serializer);
+    this.store = store;
+    this.name = name;
+  }
+
+  @Override
+  protected byte[] readBytes() {
+    return store.read(name);
+  }
+
+  @Override
+  protected void writeBytes(byte[] serializedValue) {
+    store.write(name, serializedValue);
+  }
+
+  @Override
+  public Object transactionCategory() {
+    return store;
+  }
+
+  @Override
+  public PersistenceTransaction newTransaction() {
+    return new MappedFilePersistenceTransaction(store);
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, byte[] serializedValue) {
+    ((MappedFilePersistenceTransaction)transaction).write(name, serializedValue);
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.nio.channels.FileLock;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.TwoPhasePersistenceTransaction;
+
+public class MappedFilePersistenceTransaction implements TwoPhasePersistenceTransaction, PersistenceTransaction {
+
+  private final MappedFileStore store;
+  private final Map<String, byte[]> writes;
+  private FileLock prepared;
+
+  public MappedFilePersistenceTransaction(MappedFileStore store) {
+    this.store = store;
+    this.writes = Maps.newLinkedHashMap();
+  }
+
+  public void write(String name, byte[] serializedValue) {
+    writes.put(name, serializedValue);
+  }
+
+  @Override
+  public void prepare() {
+    if (prepared != null) {
+      throw new IllegalStateException("Transaction is already prepared");
+    }
+    prepared = store.prepare(writes);
+  }
+
+  @Override
+  public void commit() {
+    if (prepared == null) {
+      store.commit(writes);
+    } else {
+      // The store is released even if applying fails, and the logged writes are replayed by the next commit
+      FileLock fileLock = prepared;
+      prepared = null;
+      store.commitPrepared(writes, fileLock);
+    }
+  }
+
+  @Override
+  public void abort() {
+    if (prepared != null) {
+      store.abortPrepared(prepared);
+      prepared = null;
+    }
+  }
+
+  @Override
+  public String prepareOrderKey() {
+    return store.getDirectory().getPath();
+  }
+}
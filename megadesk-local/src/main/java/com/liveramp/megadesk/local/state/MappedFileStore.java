@@ -0,0 +1,270 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileLock;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.utils.FormatUtils;
+
+public class MappedFileStore {
+
+  private static final String REDO_LOG_FILE = "redo.log";
+  private static final String DATA_SUFFIX = ".data";
+  private static final String LOCK_SUFFIX = ".lock";
+
+  // File locks are held by the JVM, so there must be a single store per directory
+  private static final Map<File, MappedFileStore> STORES = Maps.newHashMap();
+
+  private final File directory;
+  private final RedoLog redoLog;
+  private final Map<String, MappedRegion> regions;
+  private final Map<String, FileReadWriteLock> locks;
+  private final Semaphore permit;
+
+  private MappedFileStore(File directory) throws IOException {
+    this.directory = directory;
+    this.redoLog = new RedoLog(new File(directory, REDO_LOG_FILE));
+    this.regions = Maps.newHashMap();
+    this.locks = Maps.newHashMap();
+    this.permit = new Semaphore(1);
+    FileLock fileLock = redoLog.lock();
+    try {
+      recover();
+    } finally {
+      fileLock.release();
+    }
+  }
+
+  public static MappedFileStore open(File directory) {
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Could not create directory " + directory);
+      }
+      File canonicalDirectory = directory.getCanonicalFile();
+      synchronized (STORES) {
+        MappedFileStore store = STORES.get(canonicalDirectory);
+        if (store == null) {
+          store = new MappedFileStore(canonicalDirectory);
+          STORES.put(canonicalDirectory, store);
+        }
+        return store;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Canonical directory of the store
+  public File getDirectory() {
+    return directory;
+  }
+
+  public byte[] read(String name) {
+    try {
+      // A commit is being applied, or was left behind by a process that died while applying it
+      if (!redoLog.isEmpty()) {
+        FileLock fileLock = acquire();
+        try {
+          return region(name).read();
+        } finally {
+          release(fileLock);
+        }
+      }
+      return region(name).read();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void write(String name, byte[] value) {
+    commit(Collections.singletonMap(name, value));
+  }
+
+  public void writeIfAbsent(String name, byte[] value) {
+    FileLock fileLock = acquire();
+    try {
+      if (region(name).read() == null) {
+        apply(Collections.singletonMap(name, value));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      release(fileLock);
+    }
+  }
+
+  // Writes are made durable in the redo log first, and only then applied to the regions
+  public void commit(Map<String, byte[]> writes) {
+    if (writes.isEmpty()) {
+      return;
+    }
+    commitPrepared(writes, prepare(writes));
+  }
+
+  // Logs the writes and keeps the store locked until they are committed or aborted, possibly by another thread
+  FileLock prepare(Map<String, byte[]> writes) {
+    FileLock fileLock = acquire();
+    try {
+      redoLog.write(writes);
+      return fileLock;
+    } catch (IOException e) {
+      release(fileLock);
+      throw new RuntimeException(e);
+    }
+  }
+
+  void commitPrepared(Map<String, byte[]> writes, FileLock fileLock) {
+    try {
+      apply(writes);
+      redoLog.clear();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      release(fileLock);
+    }
+  }
+
+  void abortPrepared(FileLock fileLock) {
+    try {
+      redoLog.clear();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      release(fileLock);
+    }
+  }
+
+  // Waits for commits in progress and closes the files of the store, which must not be used anymore.
+  // Opening the same directory again returns a new store.
+  public void close() {
+    synchronized (STORES) {
+      if (STORES.get(directory) == this) {
+        STORES.remove(directory);
+      }
+    }
+    permit.acquireUninterruptibly();
+    try {
+      synchronized (regions) {
+        for (MappedRegion region : regions.values()) {
+          region.close();
+        }
+        regions.clear();
+      }
+      synchronized (locks) {
+        for (FileReadWriteLock lock : locks.values()) {
+          lock.close();
+        }
+        locks.clear();
+      }
+      redoLog.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      permit.release();
+    }
+  }
+
+  public FileReadWriteLock lock(String name) {
+    synchronized (locks) {
+      FileReadWriteLock lock = locks.get(name);
+      if (lock == null) {
+        lock = new FileReadWriteLock(new File(directory, fileName(name) + LOCK_SUFFIX));
+        locks.put(name, lock);
+      }
+      return lock;
+    }
+  }
+
+  // The store is locked against other threads with a semaphore rather than a monitor,
+  // since a prepared commit can be completed by a different thread
+  private FileLock acquire() {
+    permit.acquireUninterruptibly();
+    try {
+      FileLock fileLock = redoLog.lock();
+      try {
+        recover();
+        return fileLock;
+      } catch (IOException e) {
+        fileLock.release();
+        throw e;
+      }
+    } catch (IOException e) {
+      permit.release();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void release(FileLock fileLock) {
+    try {
+      fileLock.release();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      permit.release();
+    }
+  }
+
+  // Replays a commit left behind by a process that died between logging and applying it
+  private void recover() throws IOException {
+    if (!redoLog.isEmpty()) {
+      Map<String, byte[]> pending = redoLog.read();
+      if (pending != null) {
+        apply(pending);
+      }
+      redoLog.clear();
+    }
+  }
+
+  private void apply(Map<String, byte[]> writes) throws IOException {
+    for (Map.Entry<String, byte[]> entry : writes.entrySet()) {
+      region(entry.getKey()).write(entry.getValue());
+    }
+  }
+
+  private MappedRegion region(String name) throws IOException {
+    synchronized (regions) {
+      MappedRegion region = regions.get(name);
+      if (region == null) {
+        region = new MappedRegion(new File(directory, fileName(name) + DATA_SUFFIX));
+        regions.put(name, region);
+      }
+      return region;
+    }
+  }
+
+  private static String fileName(String name) {
+    try {
+      return URLEncoder.encode(name, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return FormatUtils.formatToString(this, directory.toString());
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// One memory-mapped file per variable. The header holds the value length plus one,
+// so that a freshly created (zero-filled) file reads as a null value.
+class MappedRegion {
+
+  private static final int HEADER_SIZE = 4;
+  private static final int INITIAL_CAPACITY = 4096;
+
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+
+  MappedRegion(File file) throws IOException {
+    this.channel = new RandomAccessFile(file, "rw").getChannel();
+    map(Math.max(channel.size(), INITIAL_CAPACITY));
+  }
+
+  synchronized byte[] read() throws IOException {
+    int header = buffer.getInt(0);
+    if (header == 0) {
+      return null;
+    }
+    int length = header - 1;
+    if (HEADER_SIZE + length > buffer.capacity()) {
+      // The file has been grown by another process
+      map(channel.size());
+    }
+    byte[] result = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(HEADER_SIZE);
+    view.get(result);
+    return result;
+  }
+
+  synchronized void write(byte[] value) throws IOException {
+    if (value == null) {
+      buffer.putInt(0, 0);
+    } else {
+      int required = HEADER_SIZE + value.length;
+      if (required > buffer.capacity()) {
+        map(Math.max(channel.size(), capacityFor(required)));
+      }
+      ByteBuffer view = buffer.duplicate();
+      view.position(HEADER_SIZE);
+      view.put(value);
+      buffer.putInt(0, value.length + 1);
+    }
+    buffer.force();
+  }
+
+  synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void map(long size) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  private static long capacityFor(int required) {
+    long capacity = INITIAL_CAPACITY;
+    while (capacity < required) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+
+// Holds at most one commit record: the set of region writes that are about to be applied.
+// A record is only valid if its checksum matches, a torn record means the commit never happened.
+class RedoLog {
+
+  private static final int MAGIC = 0x4d444b52;
+
+  private final FileChannel channel;
+
+  RedoLog(File file) throws IOException {
+    this.channel = new RandomAccessFile(file, "rw").getChannel();
+  }
+
+  // Excludes committers from other processes, callers are responsible for in-process exclusion
+  FileLock lock() throws IOException {
+    return channel.lock();
+  }
+
+  void write(Map<String, byte[]> writes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(MAGIC);
+    WriteSets.encode(output, writes);
+    output.flush();
+    output.writeLong(WriteSets.checksum(bytes.toByteArray(), 0, bytes.size()));
+    output.flush();
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    channel.truncate(0);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, buffer.position());
+    }
+    channel.force(false);
+  }
+
+  // Returns the pending writes, or null if there is no complete record
+  Map<String, byte[]> read() throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int)size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, buffer.position()) < 0) {
+        return null;
+      }
+    }
+    buffer.flip();
+    try {
+      if (buffer.getInt() != MAGIC) {
+        return null;
+      }
+      Map<String, byte[]> result = WriteSets.decode(buffer);
+      int recordLength = buffer.position();
+      if (buffer.getLong() != WriteSets.checksum(buffer.array(), 0, recordLength)) {
+        return null;
+      }
+      return result;
+    } catch (RuntimeException e) {
+      // Truncated or corrupted record
+      return null;
+    }
+  }
+
+  boolean isEmpty() throws IOException {
+    return channel.size() == 0;
+  }
+
+  void clear() throws IOException {
+    channel.truncate(0);
+    channel.force(false);
+  }
+
+  void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+// Binary encoding of a set of named values, shared by the redo log, the write-ahead log and snapshots
+final class WriteSets {
+
+  private WriteSets() {
+  }
+
+  static void encode(DataOutputStream output, Map<String, byte[]> writes) throws IOException {
+    output.writeInt(writes.size());
+    for (Map.Entry<String, byte[]> entry : writes.entrySet()) {
+      byte[] name = entry.getKey().getBytes(Charsets.UTF_8);
+      output.writeInt(name.length);
+      output.write(name);
+      byte[] value = entry.getValue();
+      if (value == null) {
+        output.writeInt(-1);
+      } else {
+        output.writeInt(value.length);
+        output.write(value);
+      }
+    }
+  }
+
+  // Throws a RuntimeException (buffer underflow, negative size) on truncated input
+  static Map<String, byte[]> decode(ByteBuffer buffer) {
+    int count = buffer.getInt();
+    Map<String, byte[]> result = Maps.newLinkedHashMap();
+    for (int i = 0; i < count; ++i) {
+      byte[] name = new byte[buffer.getInt()];
+      buffer.get(name);
+      int length = buffer.getInt();
+      byte[] value = null;
+      if (length >= 0) {
+        value = new byte[length];
+        buffer.get(value);
+      }
+      result.put(new String(name, Charsets.UTF_8), value);
+    }
+    return result;
+  }
+
+  static long checksum(byte[] bytes, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return crc.getValue();
+  }
+}
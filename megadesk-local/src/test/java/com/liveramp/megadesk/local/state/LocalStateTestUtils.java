@@ -0,0 +1,53 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.primitives.Longs;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+
+// Shared by the tests of the file backed stores
+class LocalStateTestUtils {
+
+  private LocalStateTestUtils() {
+  }
+
+  static File temporaryDirectory() throws IOException {
+    File directory = File.createTempFile("megadesk-local", "");
+    if (!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Could not create " + directory);
+    }
+    directory.deleteOnExit();
+    return directory;
+  }
+
+  static class LongSerializationHandler implements SerializationHandler<Long> {
+
+    @Override
+    public byte[] serialize(Long value) throws IOException {
+      return Longs.toByteArray(value);
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) throws IOException {
+      return Longs.fromByteArray(bytes);
+    }
+  }
+}
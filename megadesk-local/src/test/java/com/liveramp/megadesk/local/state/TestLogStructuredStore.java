@@ -0,0 +1,157 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Composition;
+import com.liveramp.megadesk.recipes.transaction.Copy;
+import com.liveramp.megadesk.recipes.transaction.IncrementLong;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static com.liveramp.megadesk.local.state.LocalStateTestUtils.temporaryDirectory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestLogStructuredStore extends BaseTestCase {
+
+  private final SerializationHandler<Long> serializer = new LocalStateTestUtils.LongSerializationHandler();
+
+  @Test
+  public void testTransactions() throws Exception {
+    File directory = temporaryDirectory();
+    LogStructuredStore store = LogStructuredStore.open(directory);
+    TransactionExecutor executor = new BaseTransactionExecutor();
+
+    Variable<Long> v1 = variable("v1", store);
+    Variable<Long> v2 = variable("v2", store);
+
+    executor.execute(new Composition(
+        new Write<Long>(v1, 1L),
+        new Copy<Long>(v1, v2),
+        new IncrementLong(v2, 2)
+    ));
+
+    assertEquals(1, (long)executor.execute(new Read<Long>(v1)));
+    assertEquals(3, (long)executor.execute(new Read<Long>(v2)));
+
+    // Reopening replays the log
+    store.close();
+    store = LogStructuredStore.open(directory);
+    assertEquals(Long.valueOf(1L), variable("v1", store).driver().persistence().read());
+    assertEquals(Long.valueOf(3L), variable("v2", store).driver().persistence().read());
+    store.close();
+  }
+
+  @Test
+  public void testSnapshots() throws Exception {
+    File directory = temporaryDirectory();
+    LogStructuredStore store = LogStructuredStore.open(directory, 1024);
+
+    for (long i = 0; i < 100; ++i) {
+      store.write("v" + (i % 10), serializer.serialize(i));
+    }
+    store.write("v0", null);
+
+    // The log has been compacted into a snapshot
+    assertTrue(new File(directory, "snapshot").exists());
+    assertTrue(new File(directory, "wal.log").length() <= 1024);
+
+    store.close();
+    store = LogStructuredStore.open(directory, 1024);
+    assertNull(store.read("v0"));
+    for (long i = 1; i < 10; ++i) {
+      assertEquals(Long.valueOf(90 + i), serializer.deserialize(store.read("v" + i)));
+    }
+    store.close();
+  }
+
+  @Test
+  public void testInterruptedSnapshotRename() throws Exception {
+    File directory = temporaryDirectory();
+    LogStructuredStore store = LogStructuredStore.open(directory);
+    store.write("v1", serializer.serialize(1L));
+    store.snapshot();
+    store.close();
+
+    // Simulate a process that died after moving the previous snapshot aside
+    assertTrue(new File(directory, "snapshot").renameTo(new File(directory, "snapshot.old")));
+
+    store = LogStructuredStore.open(directory);
+    assertEquals(Long.valueOf(1L), serializer.deserialize(store.read("v1")));
+    store.close();
+  }
+
+  @Test
+  public void testTornLog() throws Exception {
+    File directory = temporaryDirectory();
+    LogStructuredStore store = LogStructuredStore.open(directory);
+    store.write("v1", serializer.serialize(1L));
+    store.write("v2", serializer.serialize(2L));
+    store.close();
+
+    // Simulate a process that died while appending the last record
+    File log = new File(directory, "wal.log");
+    RandomAccessFile file = new RandomAccessFile(log, "rw");
+    file.setLength(file.length() - 3);
+    file.close();
+
+    store = LogStructuredStore.open(directory);
+    assertEquals(Long.valueOf(1L), serializer.deserialize(store.read("v1")));
+    assertNull(store.read("v2"));
+
+    // The torn tail is discarded and new records are appended after the last valid one
+    store.write("v2", serializer.serialize(3L));
+    store.close();
+    store = LogStructuredStore.open(directory);
+    assertEquals(Long.valueOf(3L), serializer.deserialize(store.read("v2")));
+    store.close();
+  }
+
+  @Test
+  public void testStaleCloseKeepsReopenedStore() throws Exception {
+    File directory = temporaryDirectory();
+    LogStructuredStore store = LogStructuredStore.open(directory);
+    store.close();
+    LogStructuredStore reopened = LogStructuredStore.open(directory);
+
+    // Closing the previous handle again must not unregister the store that replaced it
+    try {
+      store.close();
+    } catch (RuntimeException e) {
+      // Its log is already closed
+    }
+    assertTrue(reopened == LogStructuredStore.open(directory));
+    reopened.close();
+  }
+
+  private Variable<Long> variable(String name, LogStructuredStore store) {
+    return new BaseVariable<Long>(new Name<Long>(name), LogStructuredDriver.build(name, store, serializer, 0L));
+  }
+}
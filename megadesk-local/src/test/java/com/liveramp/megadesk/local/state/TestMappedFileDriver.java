@@ -0,0 +1,208 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.local.state;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.MultiPersistenceTransaction;
+import com.liveramp.megadesk.core.state.MultiPersistenceTransactionException;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Composition;
+import com.liveramp.megadesk.recipes.transaction.Copy;
+import com.liveramp.megadesk.recipes.transaction.IncrementLong;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static com.liveramp.megadesk.local.state.LocalStateTestUtils.temporaryDirectory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestMappedFileDriver extends BaseTestCase {
+
+  private final SerializationHandler<Long> serializer = new LocalStateTestUtils.LongSerializationHandler();
+
+  @Test
+  public void testTransactions() throws Exception {
+    MappedFileStore store = MappedFileStore.open(temporaryDirectory());
+    TransactionExecutor executor = new BaseTransactionExecutor();
+
+    Variable<Long> v1 = variable("v1", store);
+    Variable<Long> v2 = variable("v2", store);
+
+    executor.execute(new Composition(
+        new Write<Long>(v1, 1L),
+        new Copy<Long>(v1, v2),
+        new IncrementLong(v2, 2)
+    ));
+
+    assertEquals(1, (long)executor.execute(new Read<Long>(v1)));
+    assertEquals(3, (long)executor.execute(new Read<Long>(v2)));
+
+    // Values larger than the initial mapping
+    byte[] large = new byte[100000];
+    store.write("large", large);
+    assertEquals(large.length, store.read("large").length);
+  }
+
+  @Test
+  public void testParallelCommit() throws Exception {
+    ExecutorService commitExecutor = Executors.newFixedThreadPool(2);
+    TransactionExecutor executor = new BaseTransactionExecutor(commitExecutor);
+
+    // Each store is a separate persistence category, committed concurrently with two-phase commit
+    Variable<Long> v1 = variable("v1", MappedFileStore.open(temporaryDirectory()));
+    Variable<Long> v2 = variable("v2", MappedFileStore.open(temporaryDirectory()));
+
+    executor.execute(new Composition(
+        new Write<Long>(v1, 1L),
+        new Write<Long>(v2, 2L)
+    ));
+
+    assertEquals(1, (long)executor.execute(new Read<Long>(v1)));
+    assertEquals(2, (long)executor.execute(new Read<Long>(v2)));
+
+    // Asynchronous commits are concurrent too: each of these only completes once the other has started
+    final CountDownLatch started = new CountDownLatch(2);
+    MultiPersistenceTransaction transaction = new MultiPersistenceTransaction(commitExecutor);
+    for (String category : new String[]{"a", "b"}) {
+      transaction.startTransactionFor(category, new PersistenceTransaction() {
+        @Override
+        public void commit() {
+          started.countDown();
+          try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+    }
+    transaction.commitAsync().get(10, TimeUnit.SECONDS);
+    commitExecutor.shutdown();
+  }
+
+  @Test
+  public void testRecovery() throws Exception {
+    File directory = temporaryDirectory();
+
+    // Simulate a process that died after logging a commit but before applying it
+    Map<String, byte[]> writes = Maps.newLinkedHashMap();
+    writes.put("v1", serializer.serialize(10L));
+    writes.put("v2", serializer.serialize(20L));
+    new RedoLog(new File(directory, "redo.log")).write(writes);
+
+    MappedFileStore store = MappedFileStore.open(directory);
+    assertEquals(Long.valueOf(10L), variable("v1", store).driver().persistence().read());
+    assertEquals(Long.valueOf(20L), variable("v2", store).driver().persistence().read());
+  }
+
+  @Test
+  public void testRecoveryOnRead() throws Exception {
+    File directory = temporaryDirectory();
+    MappedFileStore store = MappedFileStore.open(directory);
+    store.write("v1", serializer.serialize(1L));
+
+    // Simulate another process that died after logging a commit but before applying it
+    new RedoLog(new File(directory, "redo.log")).write(Collections.singletonMap("v1", serializer.serialize(10L)));
+    assertEquals(Long.valueOf(10L), serializer.deserialize(store.read("v1")));
+    assertTrue(new RedoLog(new File(directory, "redo.log")).isEmpty());
+
+    store.close();
+    MappedFileStore reopened = MappedFileStore.open(directory);
+    assertTrue(reopened != store);
+    assertEquals(Long.valueOf(10L), serializer.deserialize(reopened.read("v1")));
+  }
+
+  @Test
+  public void testTornRedoLog() throws Exception {
+    File directory = temporaryDirectory();
+
+    // A partially written record should be discarded
+    FileOutputStream output = new FileOutputStream(new File(directory, "redo.log"));
+    output.write(new byte[]{0x4d, 0x44, 0x4b, 0x52, 0, 0, 0, 1, 0, 0});
+    output.close();
+
+    MappedFileStore store = MappedFileStore.open(directory);
+    assertEquals(null, store.read("v1"));
+    assertTrue(new RedoLog(new File(directory, "redo.log")).isEmpty());
+  }
+
+  @Test
+  public void testFailedCommitAbortsPrepared() throws Exception {
+    ExecutorService commitExecutor = Executors.newFixedThreadPool(2);
+    for (int mode = 0; mode < 4; ++mode) {
+      File directory = temporaryDirectory();
+      MappedFileStore store = MappedFileStore.open(directory);
+      MappedFilePersistenceTransaction prepared = new MappedFilePersistenceTransaction(store);
+      prepared.write("v1", serializer.serialize(1L));
+      MultiPersistenceTransaction transaction = new MultiPersistenceTransaction(mode % 2 == 1 ? commitExecutor : null);
+      transaction.startTransactionFor(store, prepared);
+      transaction.startTransactionFor("failing", new PersistenceTransaction() {
+        @Override
+        public void commit() {
+          throw new IllegalStateException("Failed to commit");
+        }
+      });
+
+      MultiPersistenceTransactionException failure = null;
+      try {
+        if (mode < 2) {
+          transaction.commit();
+        } else {
+          transaction.commitAsync().get();
+        }
+        fail();
+      } catch (MultiPersistenceTransactionException e) {
+        failure = e;
+      } catch (ExecutionException e) {
+        failure = (MultiPersistenceTransactionException)e.getCause();
+      }
+      assertEquals(Collections.singleton("failing"), failure.getFailures().keySet());
+      assertTrue(failure.getCommitted().isEmpty());
+
+      // The prepared transaction was aborted, so its writes are discarded and the store is released
+      assertTrue(new RedoLog(new File(directory, "redo.log")).isEmpty());
+      assertEquals(null, store.read("v1"));
+      store.write("v2", serializer.serialize(2L));
+      assertEquals(Long.valueOf(2L), serializer.deserialize(store.read("v2")));
+    }
+    commitExecutor.shutdown();
+  }
+
+  private Variable<Long> variable(String name, MappedFileStore store) {
+    return new BaseVariable<Long>(new Name<Long>(name), MappedFileDriver.build(name, store, serializer, 0L));
+  }
+}
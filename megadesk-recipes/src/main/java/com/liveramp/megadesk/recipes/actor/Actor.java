@@ -2,10 +2,12 @@ package com.liveramp.megadesk.recipes.actor;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import com.liveramp.megadesk.base.state.ChangeWatch;
 import com.liveramp.megadesk.base.state.InMemoryLocal;
 import com.liveramp.megadesk.base.transaction.BaseDependency;
 import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
@@ -17,6 +19,8 @@ import com.liveramp.megadesk.core.transaction.Transaction;
 
 public abstract class Actor<State, Message> {
 
+  private static final long RECV_WAIT_MS = 1000;
+
   private final ChannelImpl<Message> mailbox;
   private final TransactionExecutor executor;
   private final List<Transaction<Void>> sendOffs = Lists.newArrayList();
@@ -57,15 +61,20 @@ public abstract class Actor<State, Message> {
 
 
   protected Message recv() {
+    Transaction<Message> recv = mailbox.recv();
+    // Wait for the mailbox to change instead of spinning on it
+    ChangeWatch watch = new ChangeWatch(recv.dependency());
     try {
-      Message message = null;
+      Message message = executor.execute(recv);
       while (message == null) {
-        message = executor.execute(mailbox.recv());
-        Thread.yield();
+        watch.await(RECV_WAIT_MS, TimeUnit.MILLISECONDS);
+        message = executor.execute(recv);
       }
       return message;
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      watch.close();
     }
   }
 
@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.counter;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.recipes.transaction.IncrementLong;
+
+// A counter spread over several variables (stripes). Increments only lock one stripe, reads sum all of them.
+public class StripedCounter {
+
+  private final List<Variable<Long>> stripes;
+  // Processes use different offsets so that their threads do not all start on the same stripes
+  private final int offset;
+
+  public StripedCounter(List<Variable<Long>> stripes) {
+    if (stripes.isEmpty()) {
+      throw new IllegalArgumentException("A striped counter needs at least one stripe");
+    }
+    this.stripes = ImmutableList.copyOf(stripes);
+    this.offset = new Random().nextInt(stripes.size());
+  }
+
+  public List<Variable<Long>> getStripes() {
+    return stripes;
+  }
+
+  public int getNumStripes() {
+    return stripes.size();
+  }
+
+  // Stripe preferred by the current thread
+  public int getStripeIndex() {
+    return (int)((offset + Thread.currentThread().getId()) % stripes.size());
+  }
+
+  public Transaction<Long> getIncrementTransaction(long increment) {
+    return getIncrementTransaction(increment, getStripeIndex());
+  }
+
+  public Transaction<Long> getIncrementTransaction(long increment, int stripeIndex) {
+    return new IncrementLong(stripes.get(stripeIndex), increment);
+  }
+
+  public Transaction<Long> getReadTransaction() {
+    return new Sum(stripes);
+  }
+}
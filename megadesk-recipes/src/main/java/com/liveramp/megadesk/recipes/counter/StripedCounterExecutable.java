@@ -0,0 +1,81 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.counter;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutionResult;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+public class StripedCounterExecutable {
+
+  private final StripedCounter counter;
+  private final TransactionExecutor executor;
+
+  public StripedCounterExecutable(StripedCounter counter, TransactionExecutor executor) {
+    this.counter = counter;
+    this.executor = executor;
+  }
+
+  public static StripedCounterExecutable getCounterByName(String name, int numStripes, DriverFactory<Long> factory) {
+    List<Variable<Long>> stripes = Lists.newArrayList();
+    for (int i = 0; i < numStripes; ++i) {
+      stripes.add(new BaseVariable<Long>(new Name<Long>(name + "stripe" + i), factory.get(name + "-stripe-" + i, 0L)));
+    }
+    return new StripedCounterExecutable(new StripedCounter(stripes), new BaseTransactionExecutor());
+  }
+
+  public void increment() {
+    increment(1L);
+  }
+
+  // Stripes that are currently locked are skipped, the preferred stripe is waited for only if all of them are locked
+  public void increment(long increment) {
+    try {
+      int numStripes = counter.getNumStripes();
+      int stripeIndex = counter.getStripeIndex();
+      for (int i = 0; i < numStripes; ++i) {
+        TransactionExecutionResult<Long> result = executor.tryExecute(counter.getIncrementTransaction(increment, (stripeIndex + i) % numStripes));
+        if (result.executed()) {
+          return;
+        }
+      }
+      executor.execute(counter.getIncrementTransaction(increment, stripeIndex));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public long get() {
+    try {
+      return executor.execute(counter.getReadTransaction());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public StripedCounter getCounter() {
+    return counter;
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.counter;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+public class Sum extends BaseTransaction<Long> implements Transaction<Long> {
+
+  private final List<Variable<Long>> variables;
+
+  public Sum(List<Variable<Long>> variables) {
+    super(BaseDependency.builder().reads(Lists.<Variable>newArrayList(variables)).build());
+    this.variables = variables;
+  }
+
+  @Override
+  public Long run(Context context) throws Exception {
+    long result = 0;
+    for (Variable<Long> variable : variables) {
+      result += context.readLong(variable);
+    }
+    return result;
+  }
+}
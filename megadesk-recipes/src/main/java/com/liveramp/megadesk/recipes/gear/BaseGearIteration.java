@@ -16,20 +16,27 @@
 
 package com.liveramp.megadesk.recipes.gear;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger; import org.slf4j.LoggerFactory;
 
+import com.liveramp.megadesk.base.state.ChangeWatch;
 import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
 import com.liveramp.megadesk.core.transaction.Binding;
 import com.liveramp.megadesk.core.transaction.TransactionExecutor;
 import com.liveramp.megadesk.recipes.iteration.Iteration;
+import com.liveramp.megadesk.recipes.iteration.WaitingIteration;
 
 public class BaseGearIteration implements Iteration {
 
   private static final Logger LOG = LoggerFactory.getLogger(BaseGearIteration.class);
+  private static final long STANDBY_WAIT_MS = 1000;
 
   private final TransactionExecutor executor = new BaseTransactionExecutor();
   private final Gear gear;
   private final Binding binding;
+  // Lets a gear on standby wait for its variables to change, kept for as long as the gear iterates
+  private ChangeWatch watch;
 
   public BaseGearIteration(Gear gear) {
     this(gear, null);
@@ -42,18 +49,48 @@ public class BaseGearIteration implements Iteration {
 
   @Override
   public Iteration call() throws Exception {
-    Outcome outcome = executor.execute(gear, binding);
+    if (watch == null) {
+      watch = new ChangeWatch(BaseTransactionExecutor.bindDependency(gear.dependency(), binding));
+    }
+    Outcome outcome;
+    try {
+      outcome = executor.execute(gear, binding);
+    } catch (Exception e) {
+      stopWatching();
+      throw e;
+    }
     switch (outcome) {
       case SUCCESS:
         return this;
       case FAILURE:
+        stopWatching();
         return null;
       case STANDBY:
-        return this;
+        // Waiting is left to the executor, so that a coordinator does not hold its lock meanwhile
+        return new Standby();
       case ABANDON:
+        stopWatching();
         return null;
       default:
+        stopWatching();
         throw new IllegalStateException(); // TODO
     }
   }
+
+  private class Standby extends WaitingIteration {
+
+    private Standby() {
+      super(BaseGearIteration.this);
+    }
+
+    @Override
+    public void await() throws Exception {
+      watch.await(STANDBY_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void stopWatching() {
+    watch.close();
+    watch = null;
+  }
 }
@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger; import org.slf4j.LoggerFactory;
 
+import com.liveramp.megadesk.base.state.ChangeWatch;
 import com.liveramp.megadesk.base.transaction.BaseDependency;
 import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
 import com.liveramp.megadesk.core.transaction.Context;
@@ -40,19 +41,70 @@ public class BaseIterationCoordinator implements IterationCoordinator {
   private final BaseTransactionExecutor transactionExecutor = new BaseTransactionExecutor();
   private final String permit = UUID.randomUUID().toString();
 
+  // Permits are only read again once they have changed, except when deciding whether to continue: notifications
+  // from a remote store are asynchronous, and a shutdown must not wait for them to stop the next iteration.
+  private class PermitWatch {
+
+    private final IterationState state;
+    private final ChangeWatch watch;
+    private boolean read;
+    private boolean permitted;
+
+    private PermitWatch(IterationState state) {
+      this.state = state;
+      this.watch = new ChangeWatch(BaseDependency.builder().reads(state.iterationPermits()).build());
+    }
+
+    private boolean hasPermit() throws Exception {
+      if (watch.poll() || !read) {
+        permitted = BaseIterationCoordinator.this.hasPermit(state);
+        read = true;
+      }
+      return permitted;
+    }
+
+    private boolean readPermit() throws Exception {
+      permitted = BaseIterationCoordinator.this.hasPermit(state);
+      read = true;
+      return permitted;
+    }
+
+    private void close() {
+      watch.close();
+    }
+  }
+
   private class CoordinatedIteration implements Iteration {
 
     private final Iteration iteration;
     private final IterationState state;
+    private final PermitWatch permits;
 
-    public CoordinatedIteration(Iteration iteration, IterationState state) {
+    public CoordinatedIteration(Iteration iteration, IterationState state, PermitWatch permits) {
       this.iteration = iteration;
       this.state = state;
+      this.permits = permits;
     }
 
     @Override
     public Iteration call() throws Exception {
-      return transactionExecutor.execute(new CallTransaction());
+      Iteration result;
+      try {
+        if (iteration instanceof WaitingIteration) {
+          // Wait without holding the iteration lock, then run the next iteration under it
+          WaitingIteration waiting = (WaitingIteration)iteration;
+          waiting.await();
+          return new CoordinatedIteration(waiting.next(), state, permits);
+        }
+        result = transactionExecutor.execute(new CallTransaction());
+      } catch (Exception e) {
+        permits.close();
+        throw e;
+      }
+      if (result == null) {
+        permits.close();
+      }
+      return result;
     }
 
     private class CallTransaction implements Transaction<Iteration> {
@@ -64,12 +116,12 @@ public class BaseIterationCoordinator implements IterationCoordinator {
 
       @Override
       public Iteration run(Context context) throws Exception {
-        if (!hasPermit(state)) {
+        if (!permits.hasPermit()) {
           // No permit, just abandon
           return null;
         } else {
           Iteration nextIteration = iteration.call();
-          if (!hasPermit(state)) {
+          if (!permits.readPermit()) {
             // No permit anymore, just abandon
             return null;
           } else if (nextIteration == null) {
@@ -78,7 +130,7 @@ public class BaseIterationCoordinator implements IterationCoordinator {
             return null;
           } else {
             // Has a permit and has a next iteration, execute it
-            return new CoordinatedIteration(nextIteration, state);
+            return new CoordinatedIteration(nextIteration, state, permits);
           }
         }
       }
@@ -87,8 +139,10 @@ public class BaseIterationCoordinator implements IterationCoordinator {
 
   @Override
   public void execute(Iteration iteration, IterationState state) throws Exception {
+    // Watch before adding the permit so that no change is missed
+    PermitWatch permits = new PermitWatch(state);
     addPermit(state);
-    iterationExecutor.execute(new CoordinatedIteration(iteration, state));
+    iterationExecutor.execute(new CoordinatedIteration(iteration, state, permits));
   }
 
   @Override
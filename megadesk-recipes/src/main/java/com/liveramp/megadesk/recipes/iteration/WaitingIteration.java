@@ -0,0 +1,40 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.iteration;
+
+// Waits before continuing with another iteration. Coordinators wait outside of their iteration lock,
+// so that a waiting iteration does not keep other iterations from running.
+public abstract class WaitingIteration implements Iteration {
+
+  private final Iteration next;
+
+  public WaitingIteration(Iteration next) {
+    this.next = next;
+  }
+
+  public abstract void await() throws Exception;
+
+  public Iteration next() {
+    return next;
+  }
+
+  @Override
+  public Iteration call() throws Exception {
+    await();
+    return next;
+  }
+}
@@ -53,7 +53,7 @@ public abstract class BaseQueue<VALUE, OUTPUT> {
   }
 
   public void append(Context context, List<VALUE> values) {
-    Append<VALUE> append = getAppendTransaction(values);
+    Transaction<Void> append = getAppendTransaction(values);
     try {
       append.run(context);
     } catch (Exception e) {
@@ -77,7 +77,7 @@ public abstract class BaseQueue<VALUE, OUTPUT> {
     return frozen;
   }
 
-  protected Append<VALUE> getAppendTransaction(List<VALUE> values) {
+  protected Transaction<Void> getAppendTransaction(List<VALUE> values) {
     return new Append<VALUE>(input, values);
   }
 
@@ -17,6 +17,7 @@
 package com.liveramp.megadesk.recipes.queue;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 
@@ -44,6 +45,11 @@ public abstract class BaseQueueExecutable<VALUE, OUTPUT> implements MegadeskPers
     }
   }
 
+  // Opt-in producer that commits appends from many threads in batches
+  public BufferedAppender<VALUE> buffered(long linger, TimeUnit unit, int maxBatchSize) {
+    return new BufferedAppender<VALUE>(queue, executor, linger, unit, maxBatchSize);
+  }
+
   public OUTPUT read() {
     try {
       return queue.internalRead(executor.execute(queue.getTransferTransaction()));
@@ -60,6 +66,10 @@ public abstract class BaseQueueExecutable<VALUE, OUTPUT> implements MegadeskPers
     }
   }
 
+  protected TransactionExecutor getExecutor() {
+    return executor;
+  }
+
   public BaseQueue<VALUE, OUTPUT> getQueue() {
     return queue;
   }
@@ -0,0 +1,64 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Append that keeps the size of a bounded queue up to date, and never lets it exceed its capacity
+public class BoundedAppend<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final Variable<ImmutableList<VALUE>> input;
+  private final Variable<Long> size;
+  private final long capacity;
+  private final boolean dropOldest;
+  private final List<VALUE> values;
+
+  public BoundedAppend(Variable<ImmutableList<VALUE>> input, Variable<Long> size, long capacity, boolean dropOldest, List<VALUE> values) {
+    super(BaseDependency.builder().writes(input, size).build());
+    this.input = input;
+    this.size = size;
+    this.capacity = capacity;
+    this.dropOldest = dropOldest;
+    this.values = values;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    long newSize = context.readLong(size) + values.size();
+    ImmutableList<VALUE> newInput = ImmutableList.<VALUE>builder().addAll(context.read(input)).addAll(values).build();
+    if (newSize > capacity) {
+      // Values already transferred to the output cannot be dropped
+      long excess = newSize - capacity;
+      if (!dropOldest || excess > newInput.size()) {
+        throw new IllegalStateException("Queue is full: appending " + values.size() + " values would exceed its capacity of " + capacity);
+      }
+      newInput = newInput.subList((int)excess, newInput.size());
+      newSize = capacity;
+    }
+    context.write(input, newInput);
+    context.writeLong(size, newSize);
+    return null;
+  }
+}
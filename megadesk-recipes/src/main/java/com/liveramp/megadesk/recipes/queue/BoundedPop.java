@@ -0,0 +1,56 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Same as PopN, also releasing the popped values from the size of a bounded queue
+public class BoundedPop<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final Variable<ImmutableList<VALUE>> list;
+  private final Variable<Boolean> frozen;
+  private final Variable<Long> size;
+  private final int n;
+
+  public BoundedPop(Variable<ImmutableList<VALUE>> list, Variable<Boolean> frozen, Variable<Long> size, int n) {
+    super(BaseDependency.builder().writes(list, frozen, size).build());
+    this.list = list;
+    this.frozen = frozen;
+    this.size = size;
+    this.n = n;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    ImmutableList<VALUE> list = context.read(this.list);
+    int popped = Math.max(0, Math.min(n, list.size()));
+    if (popped > 0) {
+      context.write(this.list, list.subList(popped, list.size()));
+      context.writeLong(size, context.readLong(size) - popped);
+    }
+    if (context.read(this.list).isEmpty()) {
+      context.write(this.frozen, false);
+    }
+    return null;
+  }
+}
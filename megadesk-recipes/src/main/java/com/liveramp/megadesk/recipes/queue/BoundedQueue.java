@@ -0,0 +1,100 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Condition;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Queue holding at most a given number of values. The number of values, in input and output, is kept in its own
+// variable so that checking for room does not require reading the lists.
+public class BoundedQueue<VALUE> extends Queue<VALUE> {
+
+  private final Variable<Long> size;
+  private final long capacity;
+  private final OverflowPolicy overflowPolicy;
+
+  public BoundedQueue(Variable<ImmutableList<VALUE>> input,
+                      Variable<ImmutableList<VALUE>> output,
+                      Variable<Boolean> frozen,
+                      Variable<Long> size,
+                      long capacity,
+                      OverflowPolicy overflowPolicy) {
+    super(input, output, frozen);
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.size = size;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public Variable<Long> getSize() {
+    return size;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  @Override
+  public Dependency getAppendDependency() {
+    return BaseDependency.builder().writes(getInput(), size).build();
+  }
+
+  @Override
+  public Dependency getPopDependency() {
+    return BaseDependency.builder().writes(getInput(), getOutput(), getFrozen(), size).build();
+  }
+
+  // Whether n more values fit in the queue
+  public Condition hasRoom(final int n) {
+    return new Condition() {
+      @Override
+      public boolean holds(Context context) {
+        return context.readLong(size) + n <= capacity;
+      }
+    };
+  }
+
+  // Appending within a transaction cannot wait, so a full queue fails unless it drops its oldest values
+  @Override
+  protected Transaction<Void> getAppendTransaction(List<VALUE> values) {
+    return new BoundedAppend<VALUE>(getInput(), size, capacity, overflowPolicy == OverflowPolicy.DROP_OLDEST, values);
+  }
+
+  @Override
+  protected Transaction getPopTransaction() {
+    return getPopTransaction(1);
+  }
+
+  @Override
+  protected Transaction<Void> getPopTransaction(int n) {
+    return new BoundedPop<VALUE>(getOutput(), getFrozen(), size, n);
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+import com.liveramp.megadesk.recipes.transaction.Read;
+
+public class BoundedQueueExecutable<VALUE> extends QueueExecutable<VALUE> {
+
+  public BoundedQueueExecutable(BoundedQueue<VALUE> queue, TransactionExecutor executor) {
+    super(queue, executor);
+  }
+
+  public static <VALUE> BoundedQueueExecutable<VALUE> getQueueByName(String name,
+                                                                     long capacity,
+                                                                     OverflowPolicy overflowPolicy,
+                                                                     DriverFactory<ImmutableList<VALUE>> listFactory,
+                                                                     DriverFactory<Boolean> boolFactory,
+                                                                     DriverFactory<Long> sizeFactory) {
+    return new BoundedQueueExecutable<VALUE>(
+        new BoundedQueue<VALUE>(
+            new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "input"), listFactory.get(name + "-input", ImmutableList.<VALUE>of())),
+            new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "output"), listFactory.get(name + "-output", ImmutableList.<VALUE>of())),
+            new BaseVariable<Boolean>(new Name<Boolean>(name + "frozen"), boolFactory.get(name + "-frozen", false)),
+            new BaseVariable<Long>(new Name<Long>(name + "size"), sizeFactory.get(name + "-size", 0L)),
+            capacity,
+            overflowPolicy),
+        new BaseTransactionExecutor()
+    );
+  }
+
+  // Blocking producers wait for consumers to pop values, and are woken up by changes to the queue's size
+  @Override
+  public void append(List<VALUE> values) {
+    BoundedQueue<VALUE> queue = getQueue();
+    if (queue.getOverflowPolicy() != OverflowPolicy.BLOCK) {
+      super.append(values);
+      return;
+    }
+    if (values.size() > queue.getCapacity()) {
+      throw new IllegalArgumentException("Cannot append " + values.size() + " values to a queue with a capacity of " + queue.getCapacity());
+    }
+    try {
+      getExecutor().executeWhen(queue.getAppendTransaction(values), queue.hasRoom(values.size()));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Appends only if there is room, whatever the overflow policy
+  public boolean tryAppend(List<VALUE> values) {
+    return tryAppend(values, 0, TimeUnit.MILLISECONDS);
+  }
+
+  public boolean tryAppend(List<VALUE> values, long timeout, TimeUnit unit) {
+    BoundedQueue<VALUE> queue = getQueue();
+    try {
+      return getExecutor().executeWhen(queue.getAppendTransaction(values), queue.hasRoom(values.size()), timeout, unit).executed();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public long size() {
+    try {
+      return getExecutor().execute(new Read<Long>(getQueue().getSize()));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public BoundedQueue<VALUE> getQueue() {
+    return (BoundedQueue<VALUE>)super.getQueue();
+  }
+}
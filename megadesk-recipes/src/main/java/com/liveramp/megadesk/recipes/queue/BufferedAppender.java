@@ -0,0 +1,170 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+
+// Accumulates appends from many threads and commits them as Appends of at most maxBatchSize values, once the first
+// pending value has lingered for the given time or once a batch is full. Batches are committed one at a time, in
+// order. The returned futures complete when all the appended values have been committed. An append larger than a
+// batch is split across several commits, so if one of them fails its earlier values may already be in the queue.
+public class BufferedAppender<VALUE> {
+
+  private final BaseQueue<VALUE, ?> queue;
+  private final TransactionExecutor executor;
+  private final long lingerMs;
+  private final int maxBatchSize;
+  private final ScheduledExecutorService flusher;
+
+  private final Deque<PendingAppend<VALUE>> pending;
+  private int pendingSize;
+
+  public BufferedAppender(BaseQueue<VALUE, ?> queue, TransactionExecutor executor, long linger, TimeUnit unit, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Maximum batch size must be positive");
+    }
+    this.queue = queue;
+    this.executor = executor;
+    this.lingerMs = unit.toMillis(linger);
+    this.maxBatchSize = maxBatchSize;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("megadesk-buffered-appender-%d").build());
+    this.pending = Lists.newLinkedList();
+    this.pendingSize = 0;
+  }
+
+  public ListenableFuture<Void> append(VALUE... values) {
+    return append(Lists.newArrayList(values));
+  }
+
+  public synchronized ListenableFuture<Void> append(List<VALUE> values) {
+    if (flusher.isShutdown()) {
+      throw new IllegalStateException("Appender is closed");
+    }
+    // Nothing would ever flush an empty append
+    if (values.isEmpty()) {
+      return Futures.immediateFuture(null);
+    }
+    if (pending.isEmpty()) {
+      flusher.schedule(new Flush(), lingerMs, TimeUnit.MILLISECONDS);
+    }
+    PendingAppend<VALUE> append = new PendingAppend<VALUE>(values);
+    pending.add(append);
+    pendingSize += values.size();
+    if (pendingSize >= maxBatchSize) {
+      flusher.execute(new Flush());
+    }
+    return append.result;
+  }
+
+  // Commits pending values without waiting for the linger time, and waits for them to be committed
+  public void flush() {
+    ListenableFuture<Void> result;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      // Batches are committed in order, so the last append completes last
+      result = pending.getLast().result;
+      flusher.execute(new Flush());
+    }
+    try {
+      result.get();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void close() {
+    flush();
+    flusher.shutdown();
+  }
+
+  private static class PendingAppend<VALUE> {
+
+    private final SettableFuture<Void> result;
+    private List<VALUE> values;
+
+    private PendingAppend(List<VALUE> values) {
+      this.result = SettableFuture.create();
+      this.values = Lists.newArrayList(values);
+    }
+  }
+
+  private class Flush implements Runnable {
+
+    // Commits batches until nothing is pending, including values appended in the meantime
+    @Override
+    public void run() {
+      while (true) {
+        List<VALUE> batch = Lists.newArrayList();
+        List<SettableFuture<Void>> completed = Lists.newArrayList();
+        PendingAppend<VALUE> split = null;
+        synchronized (BufferedAppender.this) {
+          // Already committed by an earlier flush
+          if (pending.isEmpty()) {
+            return;
+          }
+          while (!pending.isEmpty() && batch.size() < maxBatchSize) {
+            PendingAppend<VALUE> append = pending.peek();
+            int count = Math.min(maxBatchSize - batch.size(), append.values.size());
+            batch.addAll(append.values.subList(0, count));
+            if (count == append.values.size()) {
+              pending.poll();
+              completed.add(append.result);
+            } else {
+              append.values = Lists.newArrayList(append.values.subList(count, append.values.size()));
+              split = append;
+            }
+          }
+          pendingSize -= batch.size();
+        }
+        try {
+          executor.execute(queue.getAppendTransaction(batch));
+          for (SettableFuture<Void> result : completed) {
+            result.set(null);
+          }
+        } catch (Exception e) {
+          for (SettableFuture<Void> result : completed) {
+            result.setException(e);
+          }
+          // The rest of a split append is not committed once part of it failed
+          if (split != null) {
+            synchronized (BufferedAppender.this) {
+              if (pending.remove(split)) {
+                pendingSize -= split.values.size();
+              }
+            }
+            split.result.setException(e);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+// Values become visible at their due time. They are stored in buckets covering fixed time ranges, each in its own
+// variable, and a small index maps the buckets that hold values to the earliest due time in each. Consumers only
+// read the buckets that are due, and know when the next value is due without reading any bucket. Drivers have no
+// delete operation, so a drained bucket keeps its empty variable in the store, and is only evicted from this
+// instance. Transactions holding an evicted bucket variable leave it alone, so that values never go to a variable
+// that a later lookup would not return.
+public class DelayQueue<VALUE> {
+
+  private final String name;
+  private final long bucketWidthMs;
+  private final Variable<ImmutableSortedMap<Long, Long>> index;
+  private final DriverFactory<ImmutableList<Stamped<VALUE>>> bucketFactory;
+  private final ConcurrentMap<Long, Variable<ImmutableList<Stamped<VALUE>>>> buckets;
+
+  public DelayQueue(String name,
+                    long bucketWidth,
+                    TimeUnit unit,
+                    Variable<ImmutableSortedMap<Long, Long>> index,
+                    DriverFactory<ImmutableList<Stamped<VALUE>>> bucketFactory) {
+    this.name = name;
+    this.bucketWidthMs = unit.toMillis(bucketWidth);
+    if (bucketWidthMs < 1) {
+      throw new IllegalArgumentException("Bucket width must be at least a millisecond");
+    }
+    this.index = index;
+    this.bucketFactory = bucketFactory;
+    this.buckets = Maps.newConcurrentMap();
+  }
+
+  public Variable<ImmutableSortedMap<Long, Long>> getIndex() {
+    return index;
+  }
+
+  // Returns false without scheduling if the bucket has been evicted since
+  public Transaction<Boolean> getScheduleTransaction(List<VALUE> values, long dueTime) {
+    long bucketKey = bucketKey(dueTime);
+    return new Schedule<VALUE>(this, index, bucket(bucketKey), bucketKey, values, dueTime);
+  }
+
+  // Polls the buckets of the given index snapshot that may hold values due at the given time
+  public PollDue<VALUE> getPollTransaction(ImmutableSortedMap<Long, Long> indexSnapshot, long now) {
+    Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> dueBuckets = Maps.newHashMap();
+    for (Map.Entry<Long, Long> entry : indexSnapshot.entrySet()) {
+      if (entry.getValue() <= now) {
+        dueBuckets.put(entry.getKey(), bucket(entry.getKey()));
+      }
+    }
+    return new PollDue<VALUE>(this, index, dueBuckets, now);
+  }
+
+  // Forgets the given buckets if they are still empty and not indexed, see EvictBuckets
+  public Transaction<Void> getEvictTransaction(Collection<Long> bucketKeys) {
+    Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> cached = Maps.newHashMap();
+    for (Long bucketKey : bucketKeys) {
+      Variable<ImmutableList<Stamped<VALUE>>> bucket = buckets.get(bucketKey);
+      if (bucket != null) {
+        cached.put(bucketKey, bucket);
+      }
+    }
+    return new EvictBuckets<VALUE>(this, index, cached);
+  }
+
+  // Number of buckets this instance holds a variable for
+  public int getBucketCount() {
+    return buckets.size();
+  }
+
+  // Earliest due time according to an index snapshot, null if there is no value
+  public static Long nextDueTime(ImmutableSortedMap<Long, Long> indexSnapshot) {
+    return indexSnapshot.isEmpty() ? null : indexSnapshot.firstEntry().getValue();
+  }
+
+  // Whether the given variable is the one this instance currently holds for the bucket
+  boolean isCurrent(long bucketKey, Variable<ImmutableList<Stamped<VALUE>>> bucket) {
+    return buckets.get(bucketKey) == bucket;
+  }
+
+  void evict(long bucketKey, Variable<ImmutableList<Stamped<VALUE>>> bucket) {
+    buckets.remove(bucketKey, bucket);
+  }
+
+  private long bucketKey(long dueTime) {
+    return dueTime / bucketWidthMs;
+  }
+
+  private Variable<ImmutableList<Stamped<VALUE>>> bucket(long bucketKey) {
+    Variable<ImmutableList<Stamped<VALUE>>> result = buckets.get(bucketKey);
+    if (result == null) {
+      Variable<ImmutableList<Stamped<VALUE>>> bucket = new BaseVariable<ImmutableList<Stamped<VALUE>>>(
+          new Name<ImmutableList<Stamped<VALUE>>>(name + "bucket" + bucketKey),
+          bucketFactory.get(name + "-bucket-" + bucketKey, ImmutableList.<Stamped<VALUE>>of()));
+      result = buckets.putIfAbsent(bucketKey, bucket);
+      if (result == null) {
+        result = bucket;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.ChangeWatch;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+import com.liveramp.megadesk.recipes.transaction.Read;
+
+public class DelayQueueExecutable<VALUE> {
+
+  // Scheduling gives up after its bucket has been evicted this many times in a row
+  private static final int MAX_SCHEDULE_ATTEMPTS = 100;
+
+  private final DelayQueue<VALUE> queue;
+  private final TransactionExecutor executor;
+
+  public DelayQueueExecutable(DelayQueue<VALUE> queue, TransactionExecutor executor) {
+    this.queue = queue;
+    this.executor = executor;
+  }
+
+  public static <VALUE> DelayQueueExecutable<VALUE> getQueueByName(String name,
+                                                                   long bucketWidth,
+                                                                   TimeUnit unit,
+                                                                   DriverFactory<ImmutableSortedMap<Long, Long>> indexFactory,
+                                                                   DriverFactory<ImmutableList<Stamped<VALUE>>> bucketFactory) {
+    return new DelayQueueExecutable<VALUE>(
+        new DelayQueue<VALUE>(
+            name,
+            bucketWidth,
+            unit,
+            new BaseVariable<ImmutableSortedMap<Long, Long>>(new Name<ImmutableSortedMap<Long, Long>>(name + "index"), indexFactory.get(name + "-index", ImmutableSortedMap.<Long, Long>of())),
+            bucketFactory),
+        new BaseTransactionExecutor()
+    );
+  }
+
+  public void schedule(VALUE value, long delay, TimeUnit unit) {
+    scheduleAt(Lists.newArrayList(value), System.currentTimeMillis() + unit.toMillis(delay));
+  }
+
+  public void scheduleAt(List<VALUE> values, long dueTime) {
+    try {
+      for (int attempt = 0; attempt < MAX_SCHEDULE_ATTEMPTS; ++attempt) {
+        if (executor.execute(queue.getScheduleTransaction(values, dueTime))) {
+          return;
+        }
+        // The bucket was evicted, try again with a new variable for it
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    throw new IllegalStateException("Could not schedule values, their bucket was evicted " + MAX_SCHEDULE_ATTEMPTS + " times in a row");
+  }
+
+  // Removes and returns the values that are due, without waiting
+  public ImmutableList<VALUE> poll() {
+    ImmutableSortedMap<Long, Long> index = readIndex();
+    long now = System.currentTimeMillis();
+    Long nextDueTime = DelayQueue.nextDueTime(index);
+    if (nextDueTime == null || nextDueTime > now) {
+      return ImmutableList.of();
+    }
+    try {
+      PollDue<VALUE> transaction = queue.getPollTransaction(index, now);
+      ImmutableList<VALUE> result = executor.execute(transaction);
+      if (!transaction.getDrained().isEmpty()) {
+        executor.execute(queue.getEvictTransaction(transaction.getDrained()));
+      }
+      return result;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Waits until some values are due, sleeping until the next due time or until values are scheduled earlier
+  public ImmutableList<VALUE> take(long timeout, TimeUnit unit) throws InterruptedException {
+    long timeoutMs = unit.toMillis(timeout);
+    long deadline = timeoutMs < Long.MAX_VALUE - System.currentTimeMillis() ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+    ChangeWatch watch = new ChangeWatch(BaseDependency.builder().reads(queue.getIndex()).build());
+    try {
+      while (true) {
+        ImmutableList<VALUE> result = poll();
+        long now = System.currentTimeMillis();
+        if (!result.isEmpty() || now >= deadline) {
+          return result;
+        }
+        Long nextDueTime = nextDueTime();
+        long wakeUp = nextDueTime == null ? deadline : Math.min(deadline, nextDueTime);
+        if (wakeUp > now) {
+          watch.await(wakeUp - now, TimeUnit.MILLISECONDS);
+        }
+      }
+    } finally {
+      watch.close();
+    }
+  }
+
+  public Long nextDueTime() {
+    return DelayQueue.nextDueTime(readIndex());
+  }
+
+  public DelayQueue<VALUE> getQueue() {
+    return queue;
+  }
+
+  private ImmutableSortedMap<Long, Long> readIndex() {
+    try {
+      return executor.execute(new Read<ImmutableSortedMap<Long, Long>>(queue.getIndex()));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+public class Enqueue<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final Variable<ImmutableList<WorkItem<VALUE>>> pending;
+  private final Variable<Long> nextId;
+  private final List<VALUE> values;
+
+  public Enqueue(Variable<ImmutableList<WorkItem<VALUE>>> pending, Variable<Long> nextId, List<VALUE> values) {
+    super(BaseDependency.builder().writes(pending, nextId).build());
+    this.pending = pending;
+    this.nextId = nextId;
+    this.values = values;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    long id = context.readLong(nextId);
+    ImmutableList.Builder<WorkItem<VALUE>> newPending = ImmutableList.<WorkItem<VALUE>>builder().addAll(context.read(pending));
+    for (VALUE value : values) {
+      newPending.add(new WorkItem<VALUE>(id++, value, 0, 0));
+    }
+    context.write(pending, newPending.build());
+    context.writeLong(nextId, id);
+    return null;
+  }
+}
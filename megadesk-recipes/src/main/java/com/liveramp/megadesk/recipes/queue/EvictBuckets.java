@@ -0,0 +1,66 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Evicts the given buckets from a delay queue if they are still empty and not indexed. The bucket locks are held
+// while evicting, so a Schedule that already holds one of these variables either runs before and keeps the bucket,
+// or runs after and sees that its variable was evicted.
+public class EvictBuckets<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final DelayQueue<VALUE> queue;
+  private final Variable<ImmutableSortedMap<Long, Long>> index;
+  private final Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> buckets;
+
+  public EvictBuckets(DelayQueue<VALUE> queue,
+                      Variable<ImmutableSortedMap<Long, Long>> index,
+                      Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> buckets) {
+    super(BaseDependency.builder().reads(reads(index, buckets)).build());
+    this.queue = queue;
+    this.index = index;
+    this.buckets = buckets;
+  }
+
+  private static List<Variable> reads(Variable index, Map<Long, ? extends Variable> buckets) {
+    List<Variable> result = Lists.<Variable>newArrayList(buckets.values());
+    result.add(index);
+    return result;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    ImmutableSortedMap<Long, Long> indexed = context.read(index);
+    for (Map.Entry<Long, Variable<ImmutableList<Stamped<VALUE>>>> entry : buckets.entrySet()) {
+      if (!indexed.containsKey(entry.getKey()) && context.read(entry.getValue()).isEmpty()) {
+        queue.evict(entry.getKey(), entry.getValue());
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Makes expired leases available again ahead of other values, then leases up to n available values
+public class Lease<VALUE> extends BaseTransaction<ImmutableList<WorkItem<VALUE>>> implements Transaction<ImmutableList<WorkItem<VALUE>>> {
+
+  private final Variable<ImmutableList<WorkItem<VALUE>>> pending;
+  private final Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased;
+  private final int n;
+  private final long now;
+  private final long leaseMs;
+
+  public Lease(Variable<ImmutableList<WorkItem<VALUE>>> pending,
+               Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased,
+               int n,
+               long now,
+               long leaseMs) {
+    super(BaseDependency.builder().writes(pending, leased).build());
+    this.pending = pending;
+    this.leased = leased;
+    this.n = n;
+    this.now = now;
+    this.leaseMs = leaseMs;
+  }
+
+  @Override
+  public ImmutableList<WorkItem<VALUE>> run(Context context) throws Exception {
+    Map<Long, WorkItem<VALUE>> newLeased = Maps.newHashMap(context.read(leased));
+    List<WorkItem<VALUE>> available = Lists.newArrayList();
+    for (WorkItem<VALUE> item : context.read(leased).values()) {
+      if (item.getDeadline() <= now) {
+        available.add(item.available());
+        newLeased.remove(item.getId());
+      }
+    }
+    boolean reclaimed = !available.isEmpty();
+    ImmutableList<WorkItem<VALUE>> pendingItems = context.read(pending);
+    available.addAll(pendingItems);
+
+    int count = Math.min(Math.max(n, 0), available.size());
+    ImmutableList.Builder<WorkItem<VALUE>> result = ImmutableList.builder();
+    for (WorkItem<VALUE> item : available.subList(0, count)) {
+      WorkItem<VALUE> leasedItem = item.leased(now + leaseMs);
+      newLeased.put(leasedItem.getId(), leasedItem);
+      result.add(leasedItem);
+    }
+    if (count > 0 || reclaimed) {
+      context.write(pending, ImmutableList.copyOf(available.subList(count, available.size())));
+      context.write(leased, ImmutableSortedMap.copyOf(newLeased));
+    }
+    return result.build();
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+public class LogAppend<VALUE> extends BaseTransaction<Boolean> implements Transaction<Boolean> {
+
+  private final Variable<Long> tail;
+  private final Map<Long, Variable<ImmutableList<VALUE>>> segments;
+  private final int segmentSize;
+  private final long tailSnapshot;
+  private final List<VALUE> values;
+
+  public LogAppend(Variable<Long> tail,
+                   Map<Long, Variable<ImmutableList<VALUE>>> segments,
+                   int segmentSize,
+                   long tailSnapshot,
+                   List<VALUE> values) {
+    super(BaseDependency.builder().writes(writes(tail, segments)).build());
+    this.tail = tail;
+    this.segments = segments;
+    this.segmentSize = segmentSize;
+    this.tailSnapshot = tailSnapshot;
+    this.values = values;
+  }
+
+  private static List<Variable> writes(Variable tail, Map<Long, ? extends Variable> segments) {
+    List<Variable> result = Lists.<Variable>newArrayList(segments.values());
+    result.add(tail);
+    return result;
+  }
+
+  @Override
+  public Boolean run(Context context) throws Exception {
+    // The segments to write were chosen according to the tail
+    if (context.read(tail) != tailSnapshot) {
+      return false;
+    }
+    long offset = tailSnapshot;
+    int start = 0;
+    while (start < values.size()) {
+      Variable<ImmutableList<VALUE>> segment = segments.get(offset / segmentSize);
+      int count = Math.min(values.size() - start, segmentSize - (int)(offset % segmentSize));
+      context.write(segment, ImmutableList.<VALUE>builder().addAll(context.read(segment)).addAll(values.subList(start, start + count)).build());
+      offset += count;
+      start += count;
+    }
+    context.write(tail, offset);
+    return true;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Reads a range of values from the given segments, returns null if the log has been truncated past the start of the
+// range. When an offset is given, the range has to start at it, and it is moved past the values that were read.
+public class LogRead<VALUE> extends BaseTransaction<ImmutableList<VALUE>> implements Transaction<ImmutableList<VALUE>> {
+
+  private final Variable<Long> head;
+  private final Variable<Long> offset;
+  private final Map<Long, Variable<ImmutableList<VALUE>>> segments;
+  private final int segmentSize;
+  private final long from;
+  private final long to;
+
+  public LogRead(Variable<Long> head,
+                 Variable<Long> offset,
+                 Map<Long, Variable<ImmutableList<VALUE>>> segments,
+                 int segmentSize,
+                 long from,
+                 long to) {
+    super(offset == null
+        ? BaseDependency.builder().reads(reads(head, segments)).build()
+        : BaseDependency.builder().reads(reads(head, segments)).writes(offset).build());
+    this.head = head;
+    this.offset = offset;
+    this.segments = segments;
+    this.segmentSize = segmentSize;
+    this.from = from;
+    this.to = to;
+  }
+
+  private static List<Variable> reads(Variable head, Map<Long, ? extends Variable> segments) {
+    List<Variable> result = Lists.<Variable>newArrayList(segments.values());
+    result.add(head);
+    return result;
+  }
+
+  @Override
+  public ImmutableList<VALUE> run(Context context) throws Exception {
+    if (offset != null && context.read(offset) != from) {
+      return null;
+    }
+    // The segments below the head may already have been cleared
+    if (context.read(head) > from) {
+      return null;
+    }
+    ImmutableList.Builder<VALUE> result = ImmutableList.builder();
+    long position = from;
+    while (position < to) {
+      ImmutableList<VALUE> segment = context.read(segments.get(position / segmentSize));
+      int index = (int)(position % segmentSize);
+      // Past the tail
+      if (index >= segment.size()) {
+        break;
+      }
+      int end = (int)Math.min(segment.size(), index + (to - position));
+      result.addAll(segment.subList(index, end));
+      position += end - index;
+    }
+    if (offset != null) {
+      context.write(offset, position);
+    }
+    return result.build();
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Clears the given segments below the given offset if every group has read past them, and returns the new head
+public class LogTruncate<VALUE> extends BaseTransaction<Long> implements Transaction<Long> {
+
+  private final Variable<Long> head;
+  private final Collection<Variable<Long>> offsets;
+  private final Map<Long, Variable<ImmutableList<VALUE>>> segments;
+  private final int segmentSize;
+  private final long to;
+
+  public LogTruncate(Variable<Long> head,
+                     Collection<Variable<Long>> offsets,
+                     Map<Long, Variable<ImmutableList<VALUE>>> segments,
+                     int segmentSize,
+                     long to) {
+    super(BaseDependency.builder().reads(Lists.<Variable>newArrayList(offsets)).writes(writes(head, segments)).build());
+    this.head = head;
+    this.offsets = offsets;
+    this.segments = segments;
+    this.segmentSize = segmentSize;
+    this.to = to;
+  }
+
+  private static List<Variable> writes(Variable head, Map<Long, ? extends Variable> segments) {
+    List<Variable> result = Lists.<Variable>newArrayList(segments.values());
+    result.add(head);
+    return result;
+  }
+
+  @Override
+  public Long run(Context context) throws Exception {
+    long currentHead = context.read(head);
+    for (Variable<Long> offset : offsets) {
+      if (context.read(offset) < to) {
+        return currentHead;
+      }
+    }
+    if (currentHead >= to) {
+      return currentHead;
+    }
+    for (Map.Entry<Long, Variable<ImmutableList<VALUE>>> entry : segments.entrySet()) {
+      if (entry.getKey() >= currentHead / segmentSize && (entry.getKey() + 1) * segmentSize <= to) {
+        context.write(entry.getValue(), ImmutableList.<VALUE>of());
+      }
+    }
+    context.write(head, to);
+    return to;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Same as Append, also counting the values and recording when the input stopped being empty
+public class MeteredAppend<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final Variable<ImmutableList<VALUE>> input;
+  private final Variable<Long> enqueued;
+  private final Variable<Long> inputSince;
+  private final List<VALUE> values;
+
+  public MeteredAppend(Variable<ImmutableList<VALUE>> input, Variable<Long> enqueued, Variable<Long> inputSince, List<VALUE> values) {
+    super(BaseDependency.builder().writes(input, enqueued, inputSince).build());
+    this.input = input;
+    this.enqueued = enqueued;
+    this.inputSince = inputSince;
+    this.values = values;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    if (values.isEmpty()) {
+      return null;
+    }
+    ImmutableList<VALUE> originalValue = context.read(input);
+    context.write(input, ImmutableList.<VALUE>builder().addAll(originalValue).addAll(values).build());
+    context.writeLong(enqueued, context.readLong(enqueued) + values.size());
+    if (originalValue.isEmpty()) {
+      context.writeLong(inputSince, System.currentTimeMillis());
+    }
+    return null;
+  }
+}
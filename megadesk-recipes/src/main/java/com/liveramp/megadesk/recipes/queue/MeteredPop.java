@@ -0,0 +1,56 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Runs a pop transaction, also counting the values it removed from the output
+public class MeteredPop<VALUE> extends BaseTransaction<Void> implements Transaction<Void> {
+
+  private final Transaction<?> pop;
+  private final Variable<ImmutableList<VALUE>> output;
+  private final Variable<Long> dequeued;
+  private final Variable<Long> outputSince;
+
+  public MeteredPop(Transaction<?> pop, Variable<ImmutableList<VALUE>> output, Variable<Long> dequeued, Variable<Long> outputSince) {
+    super(BaseDependency.merge(pop.dependency(), BaseDependency.builder().writes(dequeued, outputSince).build()));
+    this.pop = pop;
+    this.output = output;
+    this.dequeued = dequeued;
+    this.outputSince = outputSince;
+  }
+
+  @Override
+  public Void run(Context context) throws Exception {
+    int before = context.read(output).size();
+    pop.run(context);
+    int after = context.read(output).size();
+    if (after < before) {
+      context.writeLong(dequeued, context.readLong(dequeued) + before - after);
+      if (after == 0) {
+        context.writeLong(outputSince, 0);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Queue keeping its metrics in small variables next to the lists, so that they can be read without reading values.
+// Appends count the values and record when the input stopped being empty. Transfers move that time over to the
+// output, and pops count the values and clear it once the output is empty. The appended count is only written by
+// producers and the popped count only by consumers. The input time is written by both, but only along with the
+// input, which both already write, so metrics add no contention between producers and consumers.
+// Since the output is popped from one end, the age of its oldest values is the age of the whole batch.
+public class MeteredQueue<VALUE> extends Queue<VALUE> {
+
+  private final Variable<Long> enqueued;
+  private final Variable<Long> dequeued;
+  private final Variable<Long> inputSince;
+  private final Variable<Long> outputSince;
+
+  public MeteredQueue(Variable<ImmutableList<VALUE>> input,
+                      Variable<ImmutableList<VALUE>> output,
+                      Variable<Boolean> frozen,
+                      Variable<Long> enqueued,
+                      Variable<Long> dequeued,
+                      Variable<Long> inputSince,
+                      Variable<Long> outputSince) {
+    super(input, output, frozen);
+    this.enqueued = enqueued;
+    this.dequeued = dequeued;
+    this.inputSince = inputSince;
+    this.outputSince = outputSince;
+  }
+
+  @Override
+  public Dependency getAppendDependency() {
+    return BaseDependency.builder().writes(getInput(), enqueued, inputSince).build();
+  }
+
+  @Override
+  public Dependency getPopDependency() {
+    return BaseDependency.builder().writes(getInput(), getOutput(), getFrozen(), dequeued, inputSince, outputSince).build();
+  }
+
+  public Transaction<QueueStats> getStatsTransaction() {
+    return new ReadQueueStats(enqueued, dequeued, inputSince, outputSince);
+  }
+
+  @Override
+  protected Transaction<Void> getAppendTransaction(List<VALUE> values) {
+    return new MeteredAppend<VALUE>(getInput(), enqueued, inputSince, values);
+  }
+
+  @Override
+  protected TransferBatch<VALUE> getTransferTransaction() {
+    return new MeteredTransfer<VALUE>(getInput(), getOutput(), getFrozen(), inputSince, outputSince);
+  }
+
+  @Override
+  protected Transaction getPopTransaction() {
+    return getPopTransaction(1);
+  }
+
+  @Override
+  protected Transaction<Void> getPopTransaction(int n) {
+    return new MeteredPop<VALUE>(super.getPopTransaction(n), getOutput(), dequeued, outputSince);
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+public class MeteredQueueExecutable<VALUE> extends QueueExecutable<VALUE> {
+
+  public MeteredQueueExecutable(MeteredQueue<VALUE> queue, TransactionExecutor executor) {
+    super(queue, executor);
+  }
+
+  public static <VALUE> MeteredQueueExecutable<VALUE> getQueueByName(String name,
+                                                                     DriverFactory<ImmutableList<VALUE>> listFactory,
+                                                                     DriverFactory<Boolean> boolFactory,
+                                                                     DriverFactory<Long> metricFactory) {
+    return new MeteredQueueExecutable<VALUE>(
+        new MeteredQueue<VALUE>(
+            new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "input"), listFactory.get(name + "-input", ImmutableList.<VALUE>of())),
+            new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "output"), listFactory.get(name + "-output", ImmutableList.<VALUE>of())),
+            new BaseVariable<Boolean>(new Name<Boolean>(name + "frozen"), (boolFactory.get(name + "-frozen", false))),
+            new BaseVariable<Long>(new Name<Long>(name + "enqueued"), metricFactory.get(name + "-enqueued", 0L)),
+            new BaseVariable<Long>(new Name<Long>(name + "dequeued"), metricFactory.get(name + "-dequeued", 0L)),
+            new BaseVariable<Long>(new Name<Long>(name + "inputsince"), metricFactory.get(name + "-input-since", 0L)),
+            new BaseVariable<Long>(new Name<Long>(name + "outputsince"), metricFactory.get(name + "-output-since", 0L))),
+        new BaseTransactionExecutor()
+    );
+  }
+
+  @Override
+  public MeteredQueue<VALUE> getQueue() {
+    return (MeteredQueue<VALUE>)super.getQueue();
+  }
+
+  // Reads the metrics without reading any value
+  public QueueMetrics getMetrics() {
+    try {
+      return getExecutor().execute(getQueue().getStatsTransaction());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
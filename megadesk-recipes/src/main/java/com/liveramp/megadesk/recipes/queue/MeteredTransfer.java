@@ -0,0 +1,56 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import com.google.common.collect.ImmutableList;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Same as TransferBatch, also moving the time the input stopped being empty along with its values
+public class MeteredTransfer<VALUE> extends TransferBatch<VALUE> implements Transaction<ImmutableList<VALUE>> {
+
+  private final Variable<ImmutableList<VALUE>> input;
+  private final Variable<Boolean> frozen;
+  private final Variable<Long> inputSince;
+  private final Variable<Long> outputSince;
+
+  public MeteredTransfer(Variable<ImmutableList<VALUE>> input,
+                         Variable<ImmutableList<VALUE>> output,
+                         Variable<Boolean> frozen,
+                         Variable<Long> inputSince,
+                         Variable<Long> outputSince) {
+    super(BaseDependency.builder().writes(input, output, frozen, inputSince, outputSince).build(), input, output, frozen);
+    this.input = input;
+    this.frozen = frozen;
+    this.inputSince = inputSince;
+    this.outputSince = outputSince;
+  }
+
+  @Override
+  public ImmutableList<VALUE> run(Context context) throws Exception {
+    boolean transferring = !context.read(frozen) && !context.read(input).isEmpty();
+    ImmutableList<VALUE> result = super.run(context);
+    if (transferring) {
+      context.writeLong(outputSince, context.readLong(inputSince));
+      context.writeLong(inputSince, 0);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Queue whose input is spread over several shards, so that producers appending to different shards do not contend
+// on a single lock. Values are ordered per shard, or globally by append time when requested.
+public class PartitionedQueue<VALUE> {
+
+  private final List<Variable<ImmutableList<Stamped<VALUE>>>> shards;
+  private final Variable<ImmutableList<VALUE>> output;
+  private final Variable<Boolean> frozen;
+  private final boolean globalOrder;
+
+  public PartitionedQueue(List<Variable<ImmutableList<Stamped<VALUE>>>> shards,
+                          Variable<ImmutableList<VALUE>> output,
+                          Variable<Boolean> frozen,
+                          boolean globalOrder) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("A partitioned queue needs at least one shard");
+    }
+    this.shards = ImmutableList.copyOf(shards);
+    this.output = output;
+    this.frozen = frozen;
+    this.globalOrder = globalOrder;
+  }
+
+  public List<Variable<ImmutableList<Stamped<VALUE>>>> getShards() {
+    return shards;
+  }
+
+  public int getNumShards() {
+    return shards.size();
+  }
+
+  public Variable<ImmutableList<VALUE>> getOutput() {
+    return output;
+  }
+
+  public Variable<Boolean> getFrozen() {
+    return frozen;
+  }
+
+  // Shard that values appended with the given key go to, so that they keep their relative order
+  public int getShardIndex(Object key) {
+    return (key.hashCode() & Integer.MAX_VALUE) % shards.size();
+  }
+
+  public Dependency getAppendDependency(int shardIndex) {
+    return BaseDependency.builder().writes(shards.get(shardIndex)).build();
+  }
+
+  public Append<Stamped<VALUE>> getAppendTransaction(int shardIndex, List<VALUE> values) {
+    long stamp = System.currentTimeMillis();
+    List<Stamped<VALUE>> stamped = Lists.newArrayList();
+    for (VALUE value : values) {
+      stamped.add(new Stamped<VALUE>(value, stamp));
+    }
+    return new Append<Stamped<VALUE>>(shards.get(shardIndex), stamped);
+  }
+
+  // Only locks the output, see PartitionedQueueExecutable.read
+  public ReadFrozen<VALUE> getReadFrozenTransaction() {
+    return new ReadFrozen<VALUE>(output, frozen);
+  }
+
+  public TransferShards<VALUE> getTransferTransaction() {
+    return new TransferShards<VALUE>(shards, output, frozen, globalOrder);
+  }
+
+  public Transaction<Void> getPopTransaction() {
+    return new PopOne<VALUE>(output, frozen);
+  }
+
+  public VALUE read(Context context) {
+    try {
+      return internalRead(getTransferTransaction().run(context));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void pop(Context context) {
+    try {
+      getPopTransaction().run(context);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  VALUE internalRead(ImmutableList<VALUE> transfer) {
+    if (transfer.isEmpty()) {
+      return null;
+    } else {
+      return transfer.get(0);
+    }
+  }
+}
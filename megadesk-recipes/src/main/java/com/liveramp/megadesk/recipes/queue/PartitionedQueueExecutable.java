@@ -0,0 +1,121 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutionResult;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+public class PartitionedQueueExecutable<VALUE> {
+
+  private final PartitionedQueue<VALUE> queue;
+  private final TransactionExecutor executor;
+  private final AtomicInteger nextShard;
+
+  public PartitionedQueueExecutable(PartitionedQueue<VALUE> queue, TransactionExecutor executor) {
+    this.queue = queue;
+    this.executor = executor;
+    // Processes start on different shards
+    this.nextShard = new AtomicInteger(new Random().nextInt(queue.getNumShards()));
+  }
+
+  public static <VALUE> PartitionedQueueExecutable<VALUE> getQueueByName(String name,
+                                                                         int numShards,
+                                                                         boolean globalOrder,
+                                                                         DriverFactory<ImmutableList<Stamped<VALUE>>> shardFactory,
+                                                                         DriverFactory<ImmutableList<VALUE>> listFactory,
+                                                                         DriverFactory<Boolean> boolFactory) {
+    List<Variable<ImmutableList<Stamped<VALUE>>>> shards = Lists.newArrayList();
+    for (int i = 0; i < numShards; ++i) {
+      shards.add(new BaseVariable<ImmutableList<Stamped<VALUE>>>(new Name<ImmutableList<Stamped<VALUE>>>(name + "input" + i), shardFactory.get(name + "-input-" + i, ImmutableList.<Stamped<VALUE>>of())));
+    }
+    return new PartitionedQueueExecutable<VALUE>(
+        new PartitionedQueue<VALUE>(
+            shards,
+            new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "output"), listFactory.get(name + "-output", ImmutableList.<VALUE>of())),
+            new BaseVariable<Boolean>(new Name<Boolean>(name + "frozen"), boolFactory.get(name + "-frozen", false)),
+            globalOrder),
+        new BaseTransactionExecutor()
+    );
+  }
+
+  public void append(VALUE... values) {
+    append(Lists.newArrayList(values));
+  }
+
+  // Shards are used in turn, and shards that are currently locked are skipped
+  public void append(List<VALUE> values) {
+    try {
+      int numShards = queue.getNumShards();
+      int shardIndex = (nextShard.getAndIncrement() & Integer.MAX_VALUE) % numShards;
+      for (int i = 0; i < numShards; ++i) {
+        TransactionExecutionResult<Void> result = executor.tryExecute(queue.getAppendTransaction((shardIndex + i) % numShards, values));
+        if (result.executed()) {
+          return;
+        }
+      }
+      executor.execute(queue.getAppendTransaction(shardIndex, values));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Values appended with the same key always go to the same shard, and are read in order
+  public void append(Object key, List<VALUE> values) {
+    try {
+      executor.execute(queue.getAppendTransaction(queue.getShardIndex(key), values));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Shards are only locked when the output has to be refilled, so reading a frozen output does not block producers
+  public VALUE read() {
+    try {
+      ImmutableList<VALUE> transfer = executor.execute(queue.getReadFrozenTransaction());
+      if (transfer == null) {
+        transfer = executor.execute(queue.getTransferTransaction());
+      }
+      return queue.internalRead(transfer);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void pop() {
+    try {
+      executor.execute(queue.getPopTransaction());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public PartitionedQueue<VALUE> getQueue() {
+    return queue;
+  }
+}
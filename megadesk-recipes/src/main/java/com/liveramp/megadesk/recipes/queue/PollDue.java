@@ -0,0 +1,108 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Removes and returns the values of the given buckets that are due, in due time order. Buckets that have been
+// evicted from the queue since the transaction was created are skipped.
+public class PollDue<VALUE> extends BaseTransaction<ImmutableList<VALUE>> implements Transaction<ImmutableList<VALUE>> {
+
+  private final DelayQueue<VALUE> queue;
+  private final Variable<ImmutableSortedMap<Long, Long>> index;
+  private final Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> buckets;
+  private final long now;
+  // Keys of the buckets that the last run removed from the index
+  private volatile List<Long> drained;
+
+  public PollDue(DelayQueue<VALUE> queue,
+                 Variable<ImmutableSortedMap<Long, Long>> index,
+                 Map<Long, Variable<ImmutableList<Stamped<VALUE>>>> buckets,
+                 long now) {
+    super(BaseDependency.builder().writes(writes(index, buckets)).build());
+    this.queue = queue;
+    this.index = index;
+    this.buckets = buckets;
+    this.now = now;
+    this.drained = Collections.emptyList();
+  }
+
+  private static List<Variable> writes(Variable index, Map<Long, ? extends Variable> buckets) {
+    List<Variable> result = Lists.<Variable>newArrayList(buckets.values());
+    result.add(index);
+    return result;
+  }
+
+  @Override
+  public ImmutableList<VALUE> run(Context context) throws Exception {
+    Map<Long, Long> newIndex = Maps.newHashMap(context.read(index));
+    List<Stamped<VALUE>> due = Lists.newArrayList();
+    List<Long> drainedKeys = Lists.newArrayList();
+    for (Map.Entry<Long, Variable<ImmutableList<Stamped<VALUE>>>> entry : buckets.entrySet()) {
+      // Its values, if any, were scheduled in the variable that replaced it
+      if (!queue.isCurrent(entry.getKey(), entry.getValue())) {
+        continue;
+      }
+      ImmutableList<Stamped<VALUE>> values = context.read(entry.getValue());
+      List<Stamped<VALUE>> remaining = Lists.newArrayList();
+      Long earliest = null;
+      for (Stamped<VALUE> value : values) {
+        if (value.getStamp() <= now) {
+          due.add(value);
+        } else {
+          remaining.add(value);
+          earliest = earliest == null ? value.getStamp() : Math.min(earliest, value.getStamp());
+        }
+      }
+      if (remaining.size() != values.size()) {
+        context.write(entry.getValue(), ImmutableList.copyOf(remaining));
+      }
+      if (earliest == null) {
+        newIndex.remove(entry.getKey());
+        drainedKeys.add(entry.getKey());
+      } else {
+        newIndex.put(entry.getKey(), earliest);
+      }
+    }
+    context.write(index, ImmutableSortedMap.copyOf(newIndex));
+    drained = drainedKeys;
+
+    Collections.sort(due, Stamped.<VALUE>stampOrder());
+    ImmutableList.Builder<VALUE> result = ImmutableList.builder();
+    for (Stamped<VALUE> value : due) {
+      result.add(value.getValue());
+    }
+    return result.build();
+  }
+
+  public List<Long> getDrained() {
+    return drained;
+  }
+}
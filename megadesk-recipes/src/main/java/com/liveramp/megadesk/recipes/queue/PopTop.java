@@ -0,0 +1,57 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Removes and returns up to k values, taken from the first levels first
+public class PopTop<VALUE> extends BaseTransaction<ImmutableList<VALUE>> implements Transaction<ImmutableList<VALUE>> {
+
+  private final List<Variable<ImmutableList<VALUE>>> levels;
+  private final int k;
+
+  public PopTop(List<Variable<ImmutableList<VALUE>>> levels, int k) {
+    super(BaseDependency.builder().writes(Lists.<Variable>newArrayList(levels)).build());
+    this.levels = levels;
+    this.k = k;
+  }
+
+  @Override
+  public ImmutableList<VALUE> run(Context context) throws Exception {
+    ImmutableList.Builder<VALUE> result = ImmutableList.builder();
+    int remaining = k;
+    for (int i = 0; i < levels.size() && remaining > 0; ++i) {
+      ImmutableList<VALUE> level = context.read(levels.get(i));
+      if (!level.isEmpty()) {
+        int popped = Math.min(remaining, level.size());
+        result.addAll(level.subList(0, popped));
+        context.write(levels.get(i), level.subList(popped, level.size()));
+        remaining -= popped;
+      }
+    }
+    return result.build();
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Queue with a fixed number of priority levels, 0 being the highest. Each level is a FIFO list stored in its own
+// variable, so inserting only locks and rewrites one level and values never need to be sorted.
+public class PrioritizedQueue<VALUE> {
+
+  private final List<Variable<ImmutableList<VALUE>>> levels;
+
+  public PrioritizedQueue(List<Variable<ImmutableList<VALUE>>> levels) {
+    if (levels.isEmpty()) {
+      throw new IllegalArgumentException("A prioritized queue needs at least one priority level");
+    }
+    this.levels = ImmutableList.copyOf(levels);
+  }
+
+  public List<Variable<ImmutableList<VALUE>>> getLevels() {
+    return levels;
+  }
+
+  public int getNumPriorities() {
+    return levels.size();
+  }
+
+  public Dependency getInsertDependency(int priority) {
+    return BaseDependency.builder().writes(level(priority)).build();
+  }
+
+  public Dependency getPopDependency() {
+    return BaseDependency.builder().writes(Lists.<Variable>newArrayList(levels)).build();
+  }
+
+  public Transaction<Void> getInsertTransaction(int priority, List<VALUE> values) {
+    return new Append<VALUE>(level(priority), values);
+  }
+
+  public Transaction<ImmutableList<VALUE>> getPopTransaction(int k) {
+    return new PopTop<VALUE>(levels, k);
+  }
+
+  public void insert(Context context, int priority, List<VALUE> values) {
+    try {
+      getInsertTransaction(priority, values).run(context);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public ImmutableList<VALUE> pop(Context context, int k) {
+    try {
+      return getPopTransaction(k).run(context);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private Variable<ImmutableList<VALUE>> level(int priority) {
+    if (priority < 0 || priority >= levels.size()) {
+      throw new IllegalArgumentException("Priority " + priority + " is not within [0, " + levels.size() + ")");
+    }
+    return levels.get(priority);
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+public class PrioritizedQueueExecutable<VALUE> {
+
+  private final PrioritizedQueue<VALUE> queue;
+  private final TransactionExecutor executor;
+
+  public PrioritizedQueueExecutable(PrioritizedQueue<VALUE> queue, TransactionExecutor executor) {
+    this.queue = queue;
+    this.executor = executor;
+  }
+
+  public static <VALUE> PrioritizedQueueExecutable<VALUE> getQueueByName(String name,
+                                                                         int numPriorities,
+                                                                         DriverFactory<ImmutableList<VALUE>> listFactory) {
+    List<Variable<ImmutableList<VALUE>>> levels = Lists.newArrayList();
+    for (int i = 0; i < numPriorities; ++i) {
+      levels.add(new BaseVariable<ImmutableList<VALUE>>(new Name<ImmutableList<VALUE>>(name + "priority" + i), listFactory.get(name + "-priority-" + i, ImmutableList.<VALUE>of())));
+    }
+    return new PrioritizedQueueExecutable<VALUE>(new PrioritizedQueue<VALUE>(levels), new BaseTransactionExecutor());
+  }
+
+  public void insert(int priority, VALUE... values) {
+    insert(priority, Lists.newArrayList(values));
+  }
+
+  public void insert(int priority, List<VALUE> values) {
+    try {
+      executor.execute(queue.getInsertTransaction(priority, values));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Removes and returns the value with the highest priority, or null if the queue is empty
+  public VALUE pop() {
+    ImmutableList<VALUE> values = pop(1);
+    return values.isEmpty() ? null : values.get(0);
+  }
+
+  // Removes and returns up to k values with the highest priorities
+  public ImmutableList<VALUE> pop(int k) {
+    try {
+      return executor.execute(queue.getPopTransaction(k));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public PrioritizedQueue<VALUE> getQueue() {
+    return queue;
+  }
+}
@@ -19,6 +19,7 @@ package com.liveramp.megadesk.recipes.queue;
 import com.google.common.collect.ImmutableList;
 
 import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Transaction;
 
 public class Queue<VALUE> extends BaseQueue<VALUE, VALUE> {
@@ -40,4 +41,25 @@ public class Queue<VALUE> extends BaseQueue<VALUE, VALUE> {
   protected Transaction getPopTransaction() {
     return new PopOne<VALUE>(this.getOutput(), this.getFrozen());
   }
+
+  // Up to n values, frozen like a single read
+  public ImmutableList<VALUE> read(Context context, int n) {
+    return first(transfer(context), n);
+  }
+
+  public void pop(Context context, int n) {
+    try {
+      getPopTransaction(n).run(context);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  protected Transaction<Void> getPopTransaction(int n) {
+    return new PopN<VALUE>(this.getOutput(), this.getFrozen(), n);
+  }
+
+  static <VALUE> ImmutableList<VALUE> first(ImmutableList<VALUE> transfer, int n) {
+    return transfer.subList(0, Math.min(n, transfer.size()));
+  }
 }
@@ -0,0 +1,101 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Deque;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.recipes.transaction.Read;
+
+// Reads values ahead in batches and pops the ones it returned in a single transaction, so that draining a queue
+// takes two transactions per batch instead of two per value. Values are only popped once committed, either
+// explicitly or when the next batch is fetched. Like Queue itself, it assumes a single consumer.
+public class QueueConsumer<VALUE> {
+
+  private final QueueExecutable<VALUE> queue;
+  private final int prefetch;
+  private final Deque<VALUE> buffer;
+  // Values returned but not popped yet
+  private int consumed;
+
+  public QueueConsumer(QueueExecutable<VALUE> queue, int prefetch) {
+    if (prefetch < 1) {
+      throw new IllegalArgumentException("Prefetch must be positive");
+    }
+    this.queue = queue;
+    this.prefetch = prefetch;
+    this.buffer = Lists.newLinkedList();
+  }
+
+  // Next value, or null if the queue is empty
+  public synchronized VALUE poll() {
+    if (buffer.isEmpty()) {
+      commit();
+      buffer.addAll(fetch());
+    }
+    VALUE value = buffer.poll();
+    if (value != null) {
+      ++consumed;
+    }
+    return value;
+  }
+
+  public synchronized void commit() {
+    commit(consumed);
+  }
+
+  // Pops only the first values returned, the others are popped by a later commit or left in the queue
+  public synchronized void commit(int count) {
+    if (count < 0 || count > consumed) {
+      throw new IllegalArgumentException("Cannot commit " + count + " of " + consumed + " values returned");
+    }
+    if (count > 0) {
+      queue.pop(count);
+      consumed -= count;
+    }
+  }
+
+  // Values returned but not popped yet
+  public synchronized int uncommitted() {
+    return consumed;
+  }
+
+  // Values read ahead that poll can return without reading the queue, and so without committing
+  public synchronized int buffered() {
+    return buffer.size();
+  }
+
+  private ImmutableList<VALUE> fetch() {
+    ImmutableList<VALUE> values = queue.read(prefetch);
+    // Reading an empty queue freezes an empty batch, which has to be popped before later values can be read
+    if (values.isEmpty() && !isInputEmpty()) {
+      queue.pop(0);
+      values = queue.read(prefetch);
+    }
+    return values;
+  }
+
+  private boolean isInputEmpty() {
+    try {
+      return queue.getExecutor().execute(new Read<ImmutableList<VALUE>>(queue.getQueue().getInput())).isEmpty();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -46,4 +46,28 @@ public class QueueExecutable<VALUE> extends BaseQueueExecutable<VALUE, VALUE> im
   public Queue<VALUE> getQueue() {
     return (Queue<VALUE>)super.getQueue();
   }
+
+  public ImmutableList<VALUE> read(int n) {
+    try {
+      return Queue.first(getExecutor().execute(getQueue().getTransferTransaction()), n);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public void pop(int n) {
+    try {
+      getExecutor().execute(getQueue().getPopTransaction(n));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public QueueConsumer<VALUE> consumer(int prefetch) {
+    return new QueueConsumer<VALUE>(this, prefetch);
+  }
+
+  public QueueStream<VALUE> stream(int prefetch) {
+    return new QueueStream<VALUE>(this, prefetch);
+  }
 }
@@ -0,0 +1,32 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+public interface QueueMetrics {
+
+  // Number of values appended since the queue was created
+  long getEnqueuedCount();
+
+  // Number of values popped since the queue was created
+  long getDequeuedCount();
+
+  // Number of values in the queue
+  long getDepth();
+
+  // Time in milliseconds since the oldest values in the queue were appended, 0 if the queue is empty
+  long getOldestAgeMs();
+}
@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+// Metrics of a queue at a given time
+public class QueueStats implements QueueMetrics {
+
+  private final long enqueuedCount;
+  private final long dequeuedCount;
+  private final long oldestAppendTime;
+  private final long time;
+
+  public QueueStats(long enqueuedCount, long dequeuedCount, long oldestAppendTime, long time) {
+    this.enqueuedCount = enqueuedCount;
+    this.dequeuedCount = dequeuedCount;
+    this.oldestAppendTime = oldestAppendTime;
+    this.time = time;
+  }
+
+  @Override
+  public long getEnqueuedCount() {
+    return enqueuedCount;
+  }
+
+  @Override
+  public long getDequeuedCount() {
+    return dequeuedCount;
+  }
+
+  @Override
+  public long getDepth() {
+    return enqueuedCount - dequeuedCount;
+  }
+
+  @Override
+  public long getOldestAgeMs() {
+    return oldestAppendTime == 0 ? 0 : Math.max(0, time - oldestAppendTime);
+  }
+
+  @Override
+  public String toString() {
+    return "QueueStats{enqueued=" + enqueuedCount + ", dequeued=" + dequeuedCount + ", depth=" + getDepth() + ", oldestAgeMs=" + getOldestAgeMs() + "}";
+  }
+}
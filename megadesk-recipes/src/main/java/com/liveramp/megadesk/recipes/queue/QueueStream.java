@@ -0,0 +1,176 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.liveramp.megadesk.base.state.ChangeWatch;
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+
+// Consumes a queue as an iterator. A background thread polls a QueueConsumer ahead of the caller, which reads up to
+// the given number of values at a time, while the caller processes earlier ones. A value counts as processed once
+// the caller asks for the next one or closes the stream. The consumer pops a batch when it reads the next one, so it
+// only does so once every value of the batch is processed. When the queue is empty, the background thread waits for
+// it to change. Values that were not processed stay in the queue when the stream is closed. Like Queue itself, it
+// assumes a single consumer.
+public class QueueStream<VALUE> implements Iterator<VALUE> {
+
+  // Upper bound on each wait, so that a missed notification only delays fetching
+  private static final long IDLE_WAIT_MS = 1000;
+  // Polling interval for queues whose variables cannot be watched
+  private static final long POLL_MS = 100;
+
+  private final QueueConsumer<VALUE> consumer;
+  private final BlockingQueue<VALUE> buffer;
+  // Values handed over by the consumer that were not processed yet
+  private final AtomicInteger outstanding;
+  private final ChangeWatch watch;
+  private final Object signal;
+  private final Thread fetcher;
+
+  private volatile boolean closed;
+  private volatile RuntimeException failure;
+  private VALUE next;
+  private boolean returned;
+
+  public QueueStream(QueueExecutable<VALUE> queue, int prefetch) {
+    this.consumer = new QueueConsumer<VALUE>(queue, prefetch);
+    this.buffer = new LinkedBlockingQueue<VALUE>();
+    this.outstanding = new AtomicInteger();
+    // Producers only write the input, and an empty batch stays frozen until the next read, so every variable is watched
+    Queue<VALUE> watched = queue.getQueue();
+    this.watch = new ChangeWatch(BaseDependency.builder().reads(watched.getInput(), watched.getOutput(), watched.getFrozen()).build());
+    this.signal = new Object();
+    this.fetcher = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("megadesk-queue-stream-%d").build().newThread(new Fetch());
+    this.fetcher.start();
+  }
+
+  // Waits until a value is available, returns false once the stream is closed
+  @Override
+  public synchronized boolean hasNext() {
+    markProcessed();
+    while (next == null) {
+      if (failure != null) {
+        throw failure;
+      }
+      if (closed) {
+        return false;
+      }
+      try {
+        next = buffer.poll(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized VALUE next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    VALUE result = next;
+    next = null;
+    returned = true;
+    return result;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  // Stops fetching and pops the values that were processed
+  public void close() {
+    closed = true;
+    wake();
+    try {
+      fetcher.join();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    // The fetcher is done, so the consumer can be used from here
+    synchronized (this) {
+      markProcessed();
+    }
+    // Processed values were returned by the consumer before the outstanding ones
+    consumer.commit(consumer.uncommitted() - outstanding.get());
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void markProcessed() {
+    if (returned) {
+      returned = false;
+      outstanding.decrementAndGet();
+      wake();
+    }
+  }
+
+  private void wake() {
+    watch.changed();
+    synchronized (signal) {
+      signal.notifyAll();
+    }
+  }
+
+  private class Fetch implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          // Polling with nothing buffered commits every value returned so far, which must be processed by then
+          if (consumer.buffered() > 0 || outstanding.get() == 0) {
+            VALUE value = consumer.poll();
+            if (value != null) {
+              outstanding.incrementAndGet();
+              buffer.add(value);
+              continue;
+            }
+          }
+          idle();
+        }
+      } catch (InterruptedException e) {
+        failure = new RuntimeException(e);
+      } catch (RuntimeException e) {
+        failure = e;
+      } finally {
+        watch.close();
+      }
+    }
+
+    private void idle() throws InterruptedException {
+      if (watch.isWatchable()) {
+        watch.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+      } else {
+        synchronized (signal) {
+          signal.wait(POLL_MS);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+public class ReadQueueStats extends BaseTransaction<QueueStats> implements Transaction<QueueStats> {
+
+  private final Variable<Long> enqueued;
+  private final Variable<Long> dequeued;
+  private final Variable<Long> inputSince;
+  private final Variable<Long> outputSince;
+
+  public ReadQueueStats(Variable<Long> enqueued, Variable<Long> dequeued, Variable<Long> inputSince, Variable<Long> outputSince) {
+    super(BaseDependency.builder().reads(enqueued, dequeued, inputSince, outputSince).build());
+    this.enqueued = enqueued;
+    this.dequeued = dequeued;
+    this.inputSince = inputSince;
+    this.outputSince = outputSince;
+  }
+
+  @Override
+  public QueueStats run(Context context) throws Exception {
+    // Values in the output were appended before any value in the input
+    long oldest = context.readLong(outputSince);
+    if (oldest == 0) {
+      oldest = context.readLong(inputSince);
+    }
+    return new QueueStats(context.readLong(enqueued), context.readLong(dequeued), oldest, System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Extends the given leases that are still held, and returns them with their new deadline
+public class Renew<VALUE> extends BaseTransaction<ImmutableList<WorkItem<VALUE>>> implements Transaction<ImmutableList<WorkItem<VALUE>>> {
+
+  private final Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased;
+  private final List<WorkItem<VALUE>> items;
+  private final long deadline;
+
+  public Renew(Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased, List<WorkItem<VALUE>> items, long deadline) {
+    super(BaseDependency.builder().writes(leased).build());
+    this.leased = leased;
+    this.items = items;
+    this.deadline = deadline;
+  }
+
+  @Override
+  public ImmutableList<WorkItem<VALUE>> run(Context context) throws Exception {
+    ImmutableSortedMap<Long, WorkItem<VALUE>> leasedItems = context.read(leased);
+    Map<Long, WorkItem<VALUE>> newLeased = Maps.newHashMap(leasedItems);
+    ImmutableList.Builder<WorkItem<VALUE>> result = ImmutableList.builder();
+    for (WorkItem<VALUE> item : items) {
+      if (item.isSameLease(leasedItems.get(item.getId()))) {
+        WorkItem<VALUE> renewed = new WorkItem<VALUE>(item.getId(), item.getValue(), item.getAttempt(), deadline);
+        newLeased.put(renewed.getId(), renewed);
+        result.add(renewed);
+      }
+    }
+    ImmutableList<WorkItem<VALUE>> renewed = result.build();
+    if (!renewed.isEmpty()) {
+      context.write(leased, ImmutableSortedMap.copyOf(newLeased));
+    }
+    return renewed;
+  }
+}
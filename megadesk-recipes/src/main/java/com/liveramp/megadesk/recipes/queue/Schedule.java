@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Adds values due at the same time to their bucket, and records the bucket in the index of a delay queue. Returns
+// false without scheduling if the bucket has been evicted from the queue since the transaction was created.
+public class Schedule<VALUE> extends BaseTransaction<Boolean> implements Transaction<Boolean> {
+
+  private final DelayQueue<VALUE> queue;
+  private final Variable<ImmutableSortedMap<Long, Long>> index;
+  private final Variable<ImmutableList<Stamped<VALUE>>> bucket;
+  private final long bucketKey;
+  private final List<VALUE> values;
+  private final long dueTime;
+
+  public Schedule(DelayQueue<VALUE> queue,
+                  Variable<ImmutableSortedMap<Long, Long>> index,
+                  Variable<ImmutableList<Stamped<VALUE>>> bucket,
+                  long bucketKey,
+                  List<VALUE> values,
+                  long dueTime) {
+    super(BaseDependency.builder().writes(index, bucket).build());
+    this.queue = queue;
+    this.index = index;
+    this.bucket = bucket;
+    this.bucketKey = bucketKey;
+    this.values = values;
+    this.dueTime = dueTime;
+  }
+
+  @Override
+  public Boolean run(Context context) throws Exception {
+    // Evictions hold the bucket lock, so the bucket cannot be evicted after this check
+    if (!queue.isCurrent(bucketKey, bucket)) {
+      return false;
+    }
+    ImmutableList.Builder<Stamped<VALUE>> newBucket = ImmutableList.<Stamped<VALUE>>builder().addAll(context.read(bucket));
+    for (VALUE value : values) {
+      newBucket.add(new Stamped<VALUE>(value, dueTime));
+    }
+    context.write(bucket, newBucket.build());
+
+    ImmutableSortedMap<Long, Long> buckets = context.read(index);
+    Long earliest = buckets.get(bucketKey);
+    if (earliest == null || dueTime < earliest) {
+      Map<Long, Long> newBuckets = Maps.newHashMap(buckets);
+      newBuckets.put(bucketKey, dueTime);
+      context.write(index, ImmutableSortedMap.copyOf(newBuckets));
+    }
+    return true;
+  }
+}
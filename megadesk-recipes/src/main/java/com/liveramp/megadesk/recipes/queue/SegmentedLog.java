@@ -0,0 +1,150 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+// An append-only log. Values are addressed by offset and stored in segments of a fixed number of values, each in
+// its own variable, which never change once full. Each consumer group only tracks the offset of its next value, so
+// that reading does not remove anything and groups do not contend with each other. Producers and consumers only
+// contend on the segment at the tail, and segments are cleared once every group has read past them.
+public class SegmentedLog<VALUE> {
+
+  private final String name;
+  private final int segmentSize;
+  private final Variable<Long> head;
+  private final Variable<Long> tail;
+  private final Map<String, Variable<Long>> offsets;
+  private final DriverFactory<ImmutableList<VALUE>> segmentFactory;
+  private final ConcurrentMap<Long, Variable<ImmutableList<VALUE>>> segments;
+
+  public SegmentedLog(String name,
+                      int segmentSize,
+                      Variable<Long> head,
+                      Variable<Long> tail,
+                      Map<String, Variable<Long>> offsets,
+                      DriverFactory<ImmutableList<VALUE>> segmentFactory) {
+    if (segmentSize < 1) {
+      throw new IllegalArgumentException("Segment size must be at least 1");
+    }
+    this.name = name;
+    this.segmentSize = segmentSize;
+    this.head = head;
+    this.tail = tail;
+    this.offsets = offsets;
+    this.segmentFactory = segmentFactory;
+    this.segments = Maps.newConcurrentMap();
+  }
+
+  // First offset that is still retained
+  public Variable<Long> getHead() {
+    return head;
+  }
+
+  // Offset of the next appended value
+  public Variable<Long> getTail() {
+    return tail;
+  }
+
+  public Variable<Long> getOffset(String group) {
+    Variable<Long> offset = offsets.get(group);
+    if (offset == null) {
+      throw new IllegalArgumentException("Unknown consumer group: " + group);
+    }
+    return offset;
+  }
+
+  // Appends values at the given tail, returns false without appending if the tail has moved since
+  public Transaction<Boolean> getAppendTransaction(long tailSnapshot, List<VALUE> values) {
+    return new LogAppend<VALUE>(tail, segments(tailSnapshot, tailSnapshot + values.size()), segmentSize, tailSnapshot, values);
+  }
+
+  // Reads the values in the given range of offsets without any consumer group, returns null without reading if the
+  // log has been truncated past the start of the range since
+  public Transaction<ImmutableList<VALUE>> getReadTransaction(long from, long to) {
+    return new LogRead<VALUE>(head, null, segments(from, to), segmentSize, from, to);
+  }
+
+  // Reads the values in the given range and moves the offset of the group past them, returns null without
+  // reading if the offset of the group has moved since
+  public Transaction<ImmutableList<VALUE>> getPollTransaction(String group, long offsetSnapshot, long to) {
+    return new LogRead<VALUE>(head, getOffset(group), segments(offsetSnapshot, to), segmentSize, offsetSnapshot, to);
+  }
+
+  // Clears the segments below the given offset, which must not be past the offset of any group. Once committed,
+  // evictSegments should be called with the new head.
+  public Transaction<Long> getTruncateTransaction(long headSnapshot, long to) {
+    long end = (to / segmentSize) * segmentSize;
+    return new LogTruncate<VALUE>(head, offsets.values(), segments(headSnapshot, end), segmentSize, end);
+  }
+
+  // Forgets the variables of the segments below the given head, which are never accessed again
+  public void evictSegments(long newHead) {
+    long first = newHead / segmentSize;
+    Iterator<Long> iterator = segments.keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() < first) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  public Iterable<Variable<Long>> getOffsets() {
+    return offsets.values();
+  }
+
+  // Segments holding the values in the given range of offsets
+  private Map<Long, Variable<ImmutableList<VALUE>>> segments(long from, long to) {
+    Map<Long, Variable<ImmutableList<VALUE>>> result = Maps.newHashMap();
+    if (to > from) {
+      for (long index = from / segmentSize; index <= (to - 1) / segmentSize; ++index) {
+        result.put(index, segment(index));
+      }
+    }
+    return result;
+  }
+
+  private Variable<ImmutableList<VALUE>> segment(long index) {
+    Variable<ImmutableList<VALUE>> result = segments.get(index);
+    if (result == null) {
+      Variable<ImmutableList<VALUE>> segment = new BaseVariable<ImmutableList<VALUE>>(
+          new Name<ImmutableList<VALUE>>(name + "segment" + index),
+          segmentFactory.get(name + "-segment-" + index, ImmutableList.<VALUE>of()));
+      result = segments.putIfAbsent(index, segment);
+      if (result == null) {
+        result = segment;
+      }
+    }
+    return result;
+  }
+}
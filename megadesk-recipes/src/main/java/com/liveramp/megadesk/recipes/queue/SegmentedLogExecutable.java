@@ -0,0 +1,173 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+import com.liveramp.megadesk.recipes.transaction.Read;
+
+public class SegmentedLogExecutable<VALUE> {
+
+  // Optimistic appends and reads give up after this many conflicts with concurrent appends or truncations
+  private static final int MAX_ATTEMPTS = 100;
+
+  private final SegmentedLog<VALUE> log;
+  private final TransactionExecutor executor;
+
+  public SegmentedLogExecutable(SegmentedLog<VALUE> log, TransactionExecutor executor) {
+    this.log = log;
+    this.executor = executor;
+  }
+
+  public static <VALUE> SegmentedLogExecutable<VALUE> getLogByName(String name,
+                                                                   int segmentSize,
+                                                                   List<String> groups,
+                                                                   DriverFactory<ImmutableList<VALUE>> segmentFactory,
+                                                                   DriverFactory<Long> offsetFactory) {
+    Map<String, Variable<Long>> offsets = Maps.newHashMap();
+    for (String group : groups) {
+      offsets.put(group, new BaseVariable<Long>(new Name<Long>(name + "group" + group), offsetFactory.get(name + "-group-" + group, 0L)));
+    }
+    return new SegmentedLogExecutable<VALUE>(
+        new SegmentedLog<VALUE>(
+            name,
+            segmentSize,
+            new BaseVariable<Long>(new Name<Long>(name + "head"), offsetFactory.get(name + "-head", 0L)),
+            new BaseVariable<Long>(new Name<Long>(name + "tail"), offsetFactory.get(name + "-tail", 0L)),
+            offsets,
+            segmentFactory),
+        new BaseTransactionExecutor()
+    );
+  }
+
+  public void append(VALUE... values) {
+    append(Lists.newArrayList(values));
+  }
+
+  public void append(List<VALUE> values) {
+    try {
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+        if (executor.execute(log.getAppendTransaction(read(log.getTail()), values))) {
+          return;
+        }
+        // The tail moved, try again with the new one
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    throw new IllegalStateException("Could not append to the log, its tail moved " + MAX_ATTEMPTS + " times in a row");
+  }
+
+  // Reads up to max values starting at the given offset, or at the head if it has been truncated past it
+  public ImmutableList<VALUE> read(long from, int max) {
+    try {
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+        long start = Math.max(from, read(log.getHead()));
+        long end = Math.min(read(log.getTail()), start + max);
+        if (end <= start) {
+          return ImmutableList.of();
+        }
+        ImmutableList<VALUE> result = executor.execute(log.getReadTransaction(start, end));
+        if (result != null) {
+          return result;
+        }
+        // Truncated past the start in the meantime, read from the new head
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    throw new IllegalStateException("Could not read from the log, it was truncated " + MAX_ATTEMPTS + " times in a row");
+  }
+
+  // Reads up to max values for the given consumer group, and moves its offset past them
+  public ImmutableList<VALUE> poll(String group, int max) {
+    Variable<Long> offsetVariable = log.getOffset(group);
+    try {
+      while (true) {
+        long offset = read(offsetVariable);
+        long end = Math.min(read(log.getTail()), offset + max);
+        if (end <= offset) {
+          return ImmutableList.of();
+        }
+        ImmutableList<VALUE> result = executor.execute(log.getPollTransaction(group, offset, end));
+        if (result != null) {
+          // Segments may only become unused when a group moves to the next one
+          if (offset / log.getSegmentSize() != (offset + result.size()) / log.getSegmentSize()) {
+            truncate();
+          }
+          return result;
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Clears the segments that every group has read past, and returns the new head
+  public long truncate() {
+    long head = read(log.getHead());
+    long min = Long.MAX_VALUE;
+    for (Variable<Long> offset : log.getOffsets()) {
+      min = Math.min(min, read(offset));
+    }
+    if (min == Long.MAX_VALUE || min / log.getSegmentSize() * log.getSegmentSize() <= head) {
+      return head;
+    }
+    try {
+      long newHead = executor.execute(log.getTruncateTransaction(head, min));
+      log.evictSegments(newHead);
+      return newHead;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public long offset(String group) {
+    return read(log.getOffset(group));
+  }
+
+  public long head() {
+    return read(log.getHead());
+  }
+
+  public long tail() {
+    return read(log.getTail());
+  }
+
+  public SegmentedLog<VALUE> getLog() {
+    return log;
+  }
+
+  private long read(Variable<Long> variable) {
+    try {
+      return executor.execute(new Read<Long>(variable));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Ends the given leases, either acknowledging their values or making them available again. Leases that are no
+// longer held are ignored, and the number of leases that were ended is returned.
+public class Settle<VALUE> extends BaseTransaction<Integer> implements Transaction<Integer> {
+
+  private final Variable<ImmutableList<WorkItem<VALUE>>> pending;
+  private final Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased;
+  private final List<WorkItem<VALUE>> items;
+  private final boolean acknowledge;
+
+  public Settle(Variable<ImmutableList<WorkItem<VALUE>>> pending,
+                Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased,
+                List<WorkItem<VALUE>> items,
+                boolean acknowledge) {
+    // Acknowledgements do not touch available values, so they do not contend with producers
+    super(acknowledge
+        ? BaseDependency.builder().writes(leased).build()
+        : BaseDependency.builder().writes(pending, leased).build());
+    this.pending = pending;
+    this.leased = leased;
+    this.items = items;
+    this.acknowledge = acknowledge;
+  }
+
+  @Override
+  public Integer run(Context context) throws Exception {
+    ImmutableSortedMap<Long, WorkItem<VALUE>> leasedItems = context.read(leased);
+    Map<Long, WorkItem<VALUE>> newLeased = Maps.newHashMap(leasedItems);
+    List<WorkItem<VALUE>> released = Lists.newArrayList();
+    for (WorkItem<VALUE> item : items) {
+      if (item.isSameLease(leasedItems.get(item.getId()))) {
+        newLeased.remove(item.getId());
+        released.add(item.available());
+      }
+    }
+    if (released.isEmpty()) {
+      return 0;
+    }
+    context.write(leased, ImmutableSortedMap.copyOf(newLeased));
+    if (!acknowledge) {
+      context.write(pending, ImmutableList.<WorkItem<VALUE>>builder().addAll(released).addAll(context.read(pending)).build());
+    }
+    return released.size();
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import com.google.common.base.Objects;
+
+// A value along with the time at which it was appended, used to merge partitions in global order
+public class Stamped<VALUE> implements Serializable {
+
+  private final VALUE value;
+  private final long stamp;
+
+  public Stamped(VALUE value, long stamp) {
+    this.value = value;
+    this.stamp = stamp;
+  }
+
+  public VALUE getValue() {
+    return value;
+  }
+
+  public long getStamp() {
+    return stamp;
+  }
+
+  public static <VALUE> Comparator<Stamped<VALUE>> stampOrder() {
+    return new Comparator<Stamped<VALUE>>() {
+      @Override
+      public int compare(Stamped<VALUE> a, Stamped<VALUE> b) {
+        return a.stamp < b.stamp ? -1 : (a.stamp == b.stamp ? 0 : 1);
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Stamped)) {
+      return false;
+    }
+    Stamped other = (Stamped)o;
+    return stamp == other.stamp && Objects.equal(value, other.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(value, stamp);
+  }
+
+  @Override
+  public String toString() {
+    return "Stamped{value=" + value + ", stamp=" + stamp + "}";
+  }
+}
@@ -23,6 +23,7 @@ import com.liveramp.megadesk.base.transaction.BaseTransaction;
 import com.liveramp.megadesk.core.state.Variable;
 import com.liveramp.megadesk.core.transaction.Accessor;
 import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Dependency;
 import com.liveramp.megadesk.core.transaction.Transaction;
 
 public class TransferBatch<VALUE> extends BaseTransaction<ImmutableList<VALUE>> implements Transaction<ImmutableList<VALUE>> {
@@ -32,7 +33,12 @@ public class TransferBatch<VALUE> extends BaseTransaction<ImmutableList<VALUE>>
   private final Variable<Boolean> frozen;
 
   public TransferBatch(Variable<ImmutableList<VALUE>> input, Variable<ImmutableList<VALUE>> output, Variable<Boolean> frozen) {
-    super(BaseDependency.builder().writes(input, output, frozen).build());
+    this(BaseDependency.builder().writes(input, output, frozen).build(), input, output, frozen);
+  }
+
+  // For subclasses that access more variables
+  protected TransferBatch(Dependency dependency, Variable<ImmutableList<VALUE>> input, Variable<ImmutableList<VALUE>> output, Variable<Boolean> frozen) {
+    super(dependency);
     this.input = input;
     this.output = output;
     this.frozen = frozen;
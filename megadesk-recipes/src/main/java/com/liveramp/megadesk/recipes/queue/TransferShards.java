@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// Same as TransferBatch, with the input spread over several shards. It locks every shard, so consumers should first
+// check for a frozen output with ReadFrozen, which does not.
+public class TransferShards<VALUE> extends BaseTransaction<ImmutableList<VALUE>> implements Transaction<ImmutableList<VALUE>> {
+
+  private final List<Variable<ImmutableList<Stamped<VALUE>>>> shards;
+  private final Variable<ImmutableList<VALUE>> output;
+  private final Variable<Boolean> frozen;
+  private final boolean globalOrder;
+
+  public TransferShards(List<Variable<ImmutableList<Stamped<VALUE>>>> shards,
+                        Variable<ImmutableList<VALUE>> output,
+                        Variable<Boolean> frozen,
+                        boolean globalOrder) {
+    super(BaseDependency.builder().writes(writes(shards, output, frozen)).build());
+    this.shards = shards;
+    this.output = output;
+    this.frozen = frozen;
+    this.globalOrder = globalOrder;
+  }
+
+  private static List<Variable> writes(List<? extends Variable> shards, Variable output, Variable frozen) {
+    List<Variable> result = Lists.<Variable>newArrayList(shards);
+    result.add(output);
+    result.add(frozen);
+    return result;
+  }
+
+  @Override
+  public ImmutableList<VALUE> run(Context context) throws Exception {
+    if (!context.read(frozen)) {
+      if (!context.read(output).isEmpty()) {
+        throw new IllegalStateException("Batch should not be unfrozen when output still remains!");
+      }
+      List<Stamped<VALUE>> stamped = Lists.newArrayList();
+      for (Variable<ImmutableList<Stamped<VALUE>>> shard : shards) {
+        ImmutableList<Stamped<VALUE>> values = context.read(shard);
+        if (!values.isEmpty()) {
+          stamped.addAll(values);
+          context.write(shard, ImmutableList.<Stamped<VALUE>>of());
+        }
+      }
+      // The sort is stable, so values keep their shard order when stamps are equal
+      if (globalOrder) {
+        Collections.sort(stamped, Stamped.<VALUE>stampOrder());
+      }
+      ImmutableList.Builder<VALUE> values = ImmutableList.builder();
+      for (Stamped<VALUE> value : stamped) {
+        values.add(value.getValue());
+      }
+      context.write(output, values.build());
+      context.write(frozen, true);
+    }
+    return context.read(output);
+  }
+}
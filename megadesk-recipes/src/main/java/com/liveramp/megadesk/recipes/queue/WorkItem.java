@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.io.Serializable;
+
+import com.google.common.base.Objects;
+
+// A value of a work queue. While leased, the deadline is the time at which the lease expires, and the attempt
+// number identifies the lease so that a consumer whose lease expired cannot acknowledge someone else's.
+public class WorkItem<VALUE> implements Serializable {
+
+  private final long id;
+  private final VALUE value;
+  private final int attempt;
+  private final long deadline;
+
+  public WorkItem(long id, VALUE value, int attempt, long deadline) {
+    this.id = id;
+    this.value = value;
+    this.attempt = attempt;
+    this.deadline = deadline;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public VALUE getValue() {
+    return value;
+  }
+
+  public int getAttempt() {
+    return attempt;
+  }
+
+  public long getDeadline() {
+    return deadline;
+  }
+
+  public WorkItem<VALUE> leased(long deadline) {
+    return new WorkItem<VALUE>(id, value, attempt + 1, deadline);
+  }
+
+  public WorkItem<VALUE> available() {
+    return new WorkItem<VALUE>(id, value, attempt, 0);
+  }
+
+  public boolean isSameLease(WorkItem<VALUE> other) {
+    return other != null && id == other.id && attempt == other.attempt;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof WorkItem)) {
+      return false;
+    }
+    WorkItem other = (WorkItem)o;
+    return id == other.id && attempt == other.attempt && deadline == other.deadline && Objects.equal(value, other.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id, value, attempt, deadline);
+  }
+
+  @Override
+  public String toString() {
+    return "WorkItem{id=" + id + ", value=" + value + ", attempt=" + attempt + ", deadline=" + deadline + "}";
+  }
+}
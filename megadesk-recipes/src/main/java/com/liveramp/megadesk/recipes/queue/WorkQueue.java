@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+// A queue for competing consumers. Values are leased rather than popped, so that many consumers can work on distinct
+// values concurrently. Leased values are acknowledged once processed, and become available again when their lease
+// expires. Consumers only hold locks while leasing and settling, never while processing.
+public class WorkQueue<VALUE> {
+
+  private final Variable<ImmutableList<WorkItem<VALUE>>> pending;
+  private final Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased;
+  private final Variable<Long> nextId;
+
+  public WorkQueue(Variable<ImmutableList<WorkItem<VALUE>>> pending,
+                   Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> leased,
+                   Variable<Long> nextId) {
+    this.pending = pending;
+    this.leased = leased;
+    this.nextId = nextId;
+  }
+
+  public Variable<ImmutableList<WorkItem<VALUE>>> getPending() {
+    return pending;
+  }
+
+  public Variable<ImmutableSortedMap<Long, WorkItem<VALUE>>> getLeased() {
+    return leased;
+  }
+
+  public Transaction<Void> getEnqueueTransaction(List<VALUE> values) {
+    return new Enqueue<VALUE>(pending, nextId, values);
+  }
+
+  public Transaction<ImmutableList<WorkItem<VALUE>>> getLeaseTransaction(int n, long now, long leaseMs) {
+    return new Lease<VALUE>(pending, leased, n, now, leaseMs);
+  }
+
+  public Transaction<Integer> getAcknowledgeTransaction(List<WorkItem<VALUE>> items) {
+    return new Settle<VALUE>(pending, leased, items, true);
+  }
+
+  public Transaction<Integer> getReleaseTransaction(List<WorkItem<VALUE>> items) {
+    return new Settle<VALUE>(pending, leased, items, false);
+  }
+
+  public Transaction<ImmutableList<WorkItem<VALUE>>> getRenewTransaction(List<WorkItem<VALUE>> items, long deadline) {
+    return new Renew<VALUE>(leased, items, deadline);
+  }
+}
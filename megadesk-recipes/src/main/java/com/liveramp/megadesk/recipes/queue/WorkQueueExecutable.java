@@ -0,0 +1,122 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.queue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+
+public class WorkQueueExecutable<VALUE> {
+
+  private final WorkQueue<VALUE> queue;
+  private final TransactionExecutor executor;
+  private final long leaseMs;
+
+  public WorkQueueExecutable(WorkQueue<VALUE> queue, TransactionExecutor executor, long lease, TimeUnit unit) {
+    this.queue = queue;
+    this.executor = executor;
+    this.leaseMs = unit.toMillis(lease);
+  }
+
+  public static <VALUE> WorkQueueExecutable<VALUE> getQueueByName(String name,
+                                                                  long lease,
+                                                                  TimeUnit unit,
+                                                                  DriverFactory<ImmutableList<WorkItem<VALUE>>> pendingFactory,
+                                                                  DriverFactory<ImmutableSortedMap<Long, WorkItem<VALUE>>> leasedFactory,
+                                                                  DriverFactory<Long> idFactory) {
+    return new WorkQueueExecutable<VALUE>(
+        new WorkQueue<VALUE>(
+            new BaseVariable<ImmutableList<WorkItem<VALUE>>>(new Name<ImmutableList<WorkItem<VALUE>>>(name + "pending"), pendingFactory.get(name + "-pending", ImmutableList.<WorkItem<VALUE>>of())),
+            new BaseVariable<ImmutableSortedMap<Long, WorkItem<VALUE>>>(new Name<ImmutableSortedMap<Long, WorkItem<VALUE>>>(name + "leased"), leasedFactory.get(name + "-leased", ImmutableSortedMap.<Long, WorkItem<VALUE>>of())),
+            new BaseVariable<Long>(new Name<Long>(name + "nextid"), idFactory.get(name + "-next-id", 0L))),
+        new BaseTransactionExecutor(),
+        lease,
+        unit
+    );
+  }
+
+  public void enqueue(VALUE... values) {
+    enqueue(Lists.newArrayList(values));
+  }
+
+  public void enqueue(List<VALUE> values) {
+    try {
+      executor.execute(queue.getEnqueueTransaction(values));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Leases one value, or returns null if none is available
+  public WorkItem<VALUE> lease() {
+    ImmutableList<WorkItem<VALUE>> items = lease(1);
+    return items.isEmpty() ? null : items.get(0);
+  }
+
+  // Leases up to n available values, including values whose lease expired
+  public ImmutableList<WorkItem<VALUE>> lease(int n) {
+    try {
+      return executor.execute(queue.getLeaseTransaction(n, System.currentTimeMillis(), leaseMs));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Returns false if the lease was lost, in which case the value may be processed again by another consumer
+  public boolean acknowledge(WorkItem<VALUE> item) {
+    return acknowledge(Lists.newArrayList(item)) == 1;
+  }
+
+  public int acknowledge(List<WorkItem<VALUE>> items) {
+    try {
+      return executor.execute(queue.getAcknowledgeTransaction(items));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Makes values available again without waiting for their lease to expire
+  public int release(List<WorkItem<VALUE>> items) {
+    try {
+      return executor.execute(queue.getReleaseTransaction(items));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Extends leases by the lease duration, returning the renewed items to use from now on
+  public ImmutableList<WorkItem<VALUE>> renew(List<WorkItem<VALUE>> items) {
+    try {
+      return executor.execute(queue.getRenewTransaction(items, System.currentTimeMillis() + leaseMs));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public WorkQueue<VALUE> getQueue() {
+    return queue;
+  }
+}
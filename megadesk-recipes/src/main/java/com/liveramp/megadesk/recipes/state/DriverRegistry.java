@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.state;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import com.liveramp.megadesk.base.state.InMemoryReadWriteLock;
+import com.liveramp.megadesk.core.state.Driver;
+
+// Memoizes the drivers built by another factory, so that looking up the same name again is free.
+// Evicted drivers remain usable by whoever still holds them, the next lookup builds a new one. In-memory drivers are
+// never evicted: their lock and usually their value only exist in that object, so a new driver for the same name
+// would split its state. They are only removed by invalidation.
+public class DriverRegistry<T> implements DriverFactory<T> {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+  private final DriverFactory<T> factory;
+  private final Cache<String, Driver<T>> drivers;
+  private final ConcurrentMap<String, Driver<T>> inMemoryDrivers;
+
+  public DriverRegistry(DriverFactory<T> factory) {
+    this(factory, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  public DriverRegistry(DriverFactory<T> factory, long maximumSize) {
+    this(factory, CacheBuilder.newBuilder().maximumSize(maximumSize));
+  }
+
+  public DriverRegistry(DriverFactory<T> factory, long maximumSize, long expireAfterAccess, TimeUnit timeUnit) {
+    this(factory, CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterAccess(expireAfterAccess, timeUnit));
+  }
+
+  private DriverRegistry(DriverFactory<T> factory, CacheBuilder<Object, Object> cacheBuilder) {
+    this.factory = factory;
+    this.drivers = cacheBuilder.build();
+    this.inMemoryDrivers = Maps.newConcurrentMap();
+  }
+
+  // The initial value is only used by the lookup that builds the driver
+  @Override
+  public Driver<T> get(final String referenceName, final T initialValue) {
+    Driver<T> inMemoryDriver = inMemoryDrivers.get(referenceName);
+    if (inMemoryDriver != null) {
+      return inMemoryDriver;
+    }
+    Driver<T> driver = getCached(referenceName, initialValue);
+    if (!(driver.lock() instanceof InMemoryReadWriteLock)) {
+      return driver;
+    }
+    // Move it out of the cache before it can be evicted. If it was evicted already, a concurrent lookup may have
+    // moved a newer driver, which is then the one to use.
+    Driver<T> previous = inMemoryDrivers.putIfAbsent(referenceName, driver);
+    drivers.invalidate(referenceName);
+    return previous != null ? previous : driver;
+  }
+
+  private Driver<T> getCached(final String referenceName, final T initialValue) {
+    try {
+      return drivers.get(referenceName, new Callable<Driver<T>>() {
+        @Override
+        public Driver<T> call() throws Exception {
+          return factory.get(referenceName, initialValue);
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  public Driver<T> getIfPresent(String referenceName) {
+    Driver<T> inMemoryDriver = inMemoryDrivers.get(referenceName);
+    return inMemoryDriver != null ? inMemoryDriver : drivers.getIfPresent(referenceName);
+  }
+
+  public void invalidate(String referenceName) {
+    inMemoryDrivers.remove(referenceName);
+    drivers.invalidate(referenceName);
+  }
+
+  public void invalidateAll() {
+    inMemoryDrivers.clear();
+    drivers.invalidateAll();
+  }
+
+  public long size() {
+    return inMemoryDrivers.size() + drivers.size();
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.state;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.InMemoryReadWriteLock;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.ReadWriteLock;
+import com.liveramp.megadesk.recipes.state.persistence.OffHeapPersistence;
+
+public class OffHeapDriver<VALUE> implements Driver<VALUE> {
+
+  private final ReadWriteLock lock = new InMemoryReadWriteLock();
+  private final Persistence<VALUE> persistence;
+
+  public OffHeapDriver(SerializationHandler<VALUE> serializationHandler) {
+    persistence = new OffHeapPersistence<VALUE>(serializationHandler);
+  }
+
+  public OffHeapDriver(SerializationHandler<VALUE> serializationHandler, VALUE value) {
+    persistence = new OffHeapPersistence<VALUE>(serializationHandler, value);
+  }
+
+  @Override
+  public ReadWriteLock lock() {
+    return lock;
+  }
+
+  @Override
+  public Persistence<VALUE> persistence() {
+    return persistence;
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.state.persistence;
+
+import java.nio.ByteBuffer;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.core.state.Persistence;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+
+// Keeps only the serialized value, in a direct buffer outside of the heap. The value is deserialized on each read.
+public class OffHeapPersistence<VALUE> extends SerializationPersistence<VALUE> implements Persistence<VALUE> {
+
+  private static final int MIN_CAPACITY = 64;
+  // Largest power of two an int can hold
+  private static final int MAX_POWER_OF_TWO_CAPACITY = 1 << 30;
+
+  private ByteBuffer buffer;
+  private boolean isNull;
+
+  public OffHeapPersistence(SerializationHandler<VALUE> serializationHandler) {
+    super(serializationHandler);
+    this.buffer = ByteBuffer.allocateDirect(MIN_CAPACITY);
+    this.isNull = true;
+  }
+
+  public OffHeapPersistence(SerializationHandler<VALUE> serializationHandler, VALUE value) {
+    this(serializationHandler);
+    write(value);
+  }
+
+  // Size of the serialized value, without deserializing it
+  public synchronized int size() {
+    return isNull ? 0 : buffer.limit();
+  }
+
+  @Override
+  protected synchronized byte[] readBytes() {
+    if (isNull) {
+      return null;
+    }
+    byte[] result = new byte[buffer.limit()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+
+  @Override
+  protected synchronized void writeBytes(byte[] serializedValue) {
+    if (serializedValue == null) {
+      isNull = true;
+      return;
+    }
+    // The buffer is reused as long as the value fits, and grown in powers of two otherwise
+    if (serializedValue.length > buffer.capacity()) {
+      buffer = ByteBuffer.allocateDirect(capacity(serializedValue.length));
+    }
+    buffer.clear();
+    buffer.put(serializedValue);
+    buffer.flip();
+    isNull = false;
+  }
+
+  // Values larger than the largest power of two get a buffer of their exact size
+  static int capacity(int length) {
+    if (length > MAX_POWER_OF_TWO_CAPACITY) {
+      return length;
+    }
+    return Math.max(MIN_CAPACITY, Integer.highestOneBit(length - 1) << 1);
+  }
+
+  @Override
+  public Object transactionCategory() {
+    return OffHeapPersistence.class;
+  }
+
+  @Override
+  public PersistenceTransaction newTransaction() {
+    return new OffHeapPersistenceTransaction();
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, byte[] serializedValue) {
+    ((OffHeapPersistenceTransaction)transaction).write(this, serializedValue);
+  }
+
+  void commit(byte[] serializedValue) {
+    writeBytes(serializedValue);
+  }
+}
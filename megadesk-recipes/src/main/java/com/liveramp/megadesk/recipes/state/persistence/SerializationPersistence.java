@@ -33,29 +33,30 @@ public abstract class SerializationPersistence<VALUE> extends BasePersistence<VA
 
   @Override
   public VALUE read() {
-    byte[] data = readBytes();
-    VALUE value;
-    try {
-      value = serializationHandler.deserialize(data);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-    return value;
+    return deserialize(readBytes());
   }
 
   @Override
   public void write(VALUE value) {
+    writeBytes(serialize(value));
+  }
+
+  @Override
+  public void writeInTransaction(PersistenceTransaction transaction, VALUE value) {
+    writeInTransaction(transaction, serialize(value));
+  }
+
+  protected VALUE deserialize(byte[] data) {
     try {
-      writeBytes(serializationHandler.serialize(value));
+      return serializationHandler.deserialize(data);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  @Override
-  public void writeInTransaction(PersistenceTransaction transaction, VALUE value) {
+  protected byte[] serialize(VALUE value) {
     try {
-      writeInTransaction(transaction, serializationHandler.serialize(value));
+      return serializationHandler.serialize(value);
     } catch (IOException e) {
       throw new RuntimeException(e); // TODO
     }
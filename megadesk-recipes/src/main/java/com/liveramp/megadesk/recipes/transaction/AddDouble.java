@@ -0,0 +1,42 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.transaction;
+
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.Transaction;
+
+public class AddDouble extends BaseTransaction<Double> implements Transaction<Double> {
+
+  private final Variable<Double> variable;
+  private final double increment;
+
+  public AddDouble(Variable<Double> variable, double increment) {
+    super(BaseDependency.builder().writes(variable).build());
+    this.variable = variable;
+    this.increment = increment;
+  }
+
+  @Override
+  public Double run(Context context) throws Exception {
+    double value = context.readDouble(variable) + increment;
+    context.writeDouble(variable, value);
+    return value;
+  }
+}
@@ -16,11 +16,15 @@
 
 package com.liveramp.megadesk.recipes.transaction;
 
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransaction;
 import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Transaction;
 
-public class IncrementLong extends Alter<Long> implements Transaction<Long> {
+public class IncrementLong extends BaseTransaction<Long> implements Transaction<Long> {
 
+  private final Variable<Long> variable;
   private final long increment;
 
   public IncrementLong(Variable<Long> variable) {
@@ -28,12 +32,15 @@ public class IncrementLong extends Alter<Long> implements Transaction<Long> {
   }
 
   public IncrementLong(Variable<Long> variable, long increment) {
-    super(variable);
+    super(BaseDependency.builder().writes(variable).build());
+    this.variable = variable;
     this.increment = increment;
   }
 
   @Override
-  protected Long alter(Long value) {
-    return value + increment;
+  public Long run(Context context) throws Exception {
+    long value = context.readLong(variable) + increment;
+    context.writeLong(variable, value);
+    return value;
   }
 }
@@ -0,0 +1,74 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.counter;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.state.InMemoryLongDriver;
+import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.recipes.state.DriverFactory;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestStripedCounter extends BaseTestCase {
+
+  @Test
+  public void testStripedCounter() throws Exception {
+    final StripedCounterExecutable counter = StripedCounterExecutable.getCounterByName("counter", 4, new LongFactory());
+
+    List<Thread> threads = Lists.newArrayList();
+    for (int i = 0; i < 8; ++i) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; ++j) {
+            counter.increment();
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(8000, counter.get());
+    counter.increment(-8000);
+    assertEquals(0, counter.get());
+  }
+
+  private static class LongFactory implements DriverFactory<Long> {
+
+    private Map<String, Driver<Long>> drivers = Maps.newHashMap();
+
+    @Override
+    public Driver<Long> get(String referenceName, Long initialValue) {
+      if (!drivers.containsKey(referenceName)) {
+        drivers.put(referenceName, new InMemoryLongDriver(initialValue));
+      }
+      return drivers.get(referenceName);
+    }
+  }
+}
@@ -18,11 +18,14 @@ package com.liveramp.megadesk.recipes.iteration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 
 import com.liveramp.megadesk.base.state.InMemoryLocal;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Write;
 import com.liveramp.megadesk.test.BaseTestCase;
 
 import static org.junit.Assert.assertEquals;
@@ -71,4 +74,41 @@ public class TestIteration extends BaseTestCase {
     coordinator.join();
     assertTrue(list.size() > 0);
   }
+
+  @Test
+  public void testWaitingIteration() throws Exception {
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final CountDownLatch resume = new CountDownLatch(1);
+    final List<Integer> list = new ArrayList<Integer>();
+    final Iteration addOne = new Iteration() {
+      @Override
+      public Iteration call() throws Exception {
+        list.add(list.size());
+        return null;
+      }
+    };
+    Iteration waitThenAddOne = new Iteration() {
+      @Override
+      public Iteration call() throws Exception {
+        return new WaitingIteration(addOne) {
+          @Override
+          public void await() throws Exception {
+            waiting.countDown();
+            resume.await();
+          }
+        };
+      }
+    };
+
+    IterationState state = new BaseIterationState(new InMemoryLocal<Integer>(0), new InMemoryLocal<ImmutableList<String>>(ImmutableList.<String>of()));
+
+    IterationCoordinator coordinator = new BaseIterationCoordinator();
+    coordinator.execute(waitThenAddOne, state);
+    waiting.await();
+    // The iteration lock is not held while waiting
+    assertTrue(new BaseTransactionExecutor().tryExecute(new Write<Integer>(state.iterationLock(), 1)).executed());
+    resume.countDown();
+    coordinator.join();
+    assertEquals(1, list.size());
+  }
 }
@@ -16,20 +16,36 @@
 
 package com.liveramp.megadesk.recipes.queue;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Test;
 
+import com.liveramp.megadesk.base.state.BaseDriver;
+import com.liveramp.megadesk.base.state.BaseReadWriteLock;
 import com.liveramp.megadesk.base.state.InMemoryDriver;
+import com.liveramp.megadesk.base.state.InMemoryPersistence;
 import com.liveramp.megadesk.base.transaction.BaseDependency;
 import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
 import com.liveramp.megadesk.core.state.Driver;
+import com.liveramp.megadesk.core.state.Variable;
 import com.liveramp.megadesk.core.transaction.Context;
 import com.liveramp.megadesk.core.transaction.Dependency;
+import com.liveramp.megadesk.core.transaction.Transaction;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
 import com.liveramp.megadesk.recipes.gear.BaseGearIteration;
 import com.liveramp.megadesk.recipes.gear.ConditionalGear;
 import com.liveramp.megadesk.recipes.gear.Gear;
@@ -37,10 +53,13 @@ import com.liveramp.megadesk.recipes.gear.Outcome;
 import com.liveramp.megadesk.recipes.iteration.BaseIterationExecutor;
 import com.liveramp.megadesk.recipes.iteration.IterationExecutor;
 import com.liveramp.megadesk.recipes.state.DriverFactory;
+import com.liveramp.megadesk.recipes.state.DriverRegistry;
 import com.liveramp.megadesk.test.BaseTestCase;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestQueue extends BaseTestCase {
 
@@ -101,6 +120,342 @@ public class TestQueue extends BaseTestCase {
     assertEquals(Integer.valueOf(12), queue.read());
   }
 
+  @Test
+  public void testBulkConsumption() {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    QueueExecutable<Integer> queue = QueueExecutable.getQueueByName("bulk", listFactory, boolFactory);
+
+    queue.append(1, 2, 3, 4, 5);
+    assertEquals(ImmutableList.of(1, 2, 3), queue.read(3));
+    // Frozen until fully popped
+    queue.append(6);
+    queue.pop(3);
+    assertEquals(ImmutableList.of(4, 5), queue.read(3));
+    queue.pop(2);
+    assertEquals(ImmutableList.of(6), queue.read(3));
+
+    QueueConsumer<Integer> consumer = queue.consumer(4);
+    queue.append(7, 8, 9, 10, 11);
+    for (int i = 6; i <= 11; ++i) {
+      assertEquals(Integer.valueOf(i), consumer.poll());
+    }
+    assertEquals(null, consumer.poll());
+    consumer.commit();
+    assertEquals(null, queue.read());
+
+    // Values appended after the queue was found empty are picked up
+    queue.append(12);
+    assertEquals(Integer.valueOf(12), consumer.poll());
+    consumer.commit();
+    assertEquals(null, queue.read());
+  }
+
+  @Test
+  public void testBoundedQueue() throws Exception {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    DriverFactory<Long> sizeFactory = new BasicFactory<Long>();
+
+    BoundedQueueExecutable<Integer> failing = BoundedQueueExecutable.getQueueByName("failing", 3, OverflowPolicy.FAIL, listFactory, boolFactory, sizeFactory);
+    failing.append(1, 2, 3);
+    assertFalse(failing.tryAppend(Lists.newArrayList(4)));
+    try {
+      failing.append(4);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(3, failing.size());
+
+    BoundedQueueExecutable<Integer> dropping = BoundedQueueExecutable.getQueueByName("dropping", 3, OverflowPolicy.DROP_OLDEST, listFactory, boolFactory, sizeFactory);
+    dropping.append(1, 2, 3, 4);
+    assertEquals(ImmutableList.of(2, 3, 4), dropping.read(3));
+
+    // A blocked producer is woken up once a value is popped
+    final BoundedQueueExecutable<Integer> blocking = BoundedQueueExecutable.getQueueByName("blocking", 2, OverflowPolicy.BLOCK, listFactory, boolFactory, sizeFactory);
+    blocking.append(1, 2);
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    Future<?> producer = service.submit(new Runnable() {
+      @Override
+      public void run() {
+        blocking.append(3);
+      }
+    });
+    Thread.sleep(50);
+    assertFalse(producer.isDone());
+    assertEquals(Integer.valueOf(1), blocking.read());
+    blocking.pop();
+    producer.get(10, TimeUnit.SECONDS);
+    service.shutdown();
+    assertEquals(2, blocking.size());
+    blocking.pop();
+    assertEquals(Integer.valueOf(3), blocking.read());
+  }
+
+  @Test
+  public void testPrioritizedQueue() {
+    DriverFactory<ImmutableList<String>> listFactory = new BasicFactory<ImmutableList<String>>();
+    PrioritizedQueueExecutable<String> queue = PrioritizedQueueExecutable.getQueueByName("prioritized", 3, listFactory);
+
+    queue.insert(2, "low1", "low2");
+    queue.insert(0, "high1");
+    queue.insert(1, "medium1");
+    queue.insert(0, "high2");
+
+    assertEquals("high1", queue.pop());
+    assertEquals(ImmutableList.of("high2", "medium1", "low1"), queue.pop(3));
+    assertEquals(ImmutableList.of("low2"), queue.pop(3));
+    assertEquals(null, queue.pop());
+  }
+
+  @Test
+  public void testDelayQueue() throws Exception {
+    DriverFactory<ImmutableSortedMap<Long, Long>> indexFactory = new BasicFactory<ImmutableSortedMap<Long, Long>>();
+    DriverFactory<ImmutableList<Stamped<String>>> bucketFactory = new BasicFactory<ImmutableList<Stamped<String>>>();
+    DelayQueueExecutable<String> queue = DelayQueueExecutable.getQueueByName("delayed", 100, TimeUnit.MILLISECONDS, indexFactory, bucketFactory);
+
+    long now = System.currentTimeMillis();
+    queue.scheduleAt(Lists.newArrayList("late"), now + 300);
+    queue.scheduleAt(Lists.newArrayList("past"), now - 1000);
+    queue.scheduleAt(Lists.newArrayList("never"), now + 60000);
+
+    assertEquals(ImmutableList.of("past"), queue.poll());
+    assertEquals(ImmutableList.<String>of(), queue.poll());
+    assertEquals(now + 300, (long)queue.nextDueTime());
+
+    // Consumers sleep until the next due time
+    queue.schedule("soon", 50, TimeUnit.MILLISECONDS);
+    assertEquals(ImmutableList.of("soon"), queue.take(10, TimeUnit.SECONDS));
+    assertEquals(ImmutableList.of("late"), queue.take(10, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() >= now + 300);
+
+    assertEquals(ImmutableList.<String>of(), queue.take(50, TimeUnit.MILLISECONDS));
+    assertEquals(now + 60000, (long)queue.nextDueTime());
+    // Only the bucket that still holds a value is kept
+    assertEquals(1, queue.getQueue().getBucketCount());
+  }
+
+  @Test
+  public void testDelayQueueEvictionRace() throws Exception {
+    DriverFactory<ImmutableSortedMap<Long, Long>> indexFactory = new BasicFactory<ImmutableSortedMap<Long, Long>>();
+    DriverFactory<ImmutableList<Stamped<String>>> bucketFactory = new NewDriverFactory<ImmutableList<Stamped<String>>>();
+    DelayQueueExecutable<String> queue = DelayQueueExecutable.getQueueByName("evicted", 100, TimeUnit.MILLISECONDS, indexFactory, bucketFactory);
+    TransactionExecutor executor = new BaseTransactionExecutor();
+
+    long dueTime = System.currentTimeMillis() - 1000;
+    queue.scheduleAt(Lists.newArrayList("first"), dueTime);
+    // A producer that looked up the bucket before it was drained and evicted
+    Transaction<Boolean> stale = queue.getQueue().getScheduleTransaction(Lists.newArrayList("second"), dueTime);
+    assertEquals(ImmutableList.of("first"), queue.poll());
+    assertEquals(0, queue.getQueue().getBucketCount());
+
+    // Its value would be lost in a variable that no lookup returns anymore
+    assertFalse(executor.execute(stale));
+    assertEquals(ImmutableList.<String>of(), queue.poll());
+
+    // A bucket that is scheduled again before eviction is kept
+    queue.scheduleAt(Lists.newArrayList("third"), dueTime);
+    Transaction<Void> eviction = queue.getQueue().getEvictTransaction(Lists.newArrayList(dueTime / 100));
+    queue.scheduleAt(Lists.newArrayList("fourth"), dueTime);
+    executor.execute(eviction);
+    assertEquals(1, queue.getQueue().getBucketCount());
+    assertEquals(ImmutableList.of("third", "fourth"), queue.poll());
+  }
+
+  @Test
+  public void testWorkQueue() throws Exception {
+    DriverFactory<ImmutableList<WorkItem<Integer>>> pendingFactory = new BasicFactory<ImmutableList<WorkItem<Integer>>>();
+    DriverFactory<ImmutableSortedMap<Long, WorkItem<Integer>>> leasedFactory = new BasicFactory<ImmutableSortedMap<Long, WorkItem<Integer>>>();
+    DriverFactory<Long> idFactory = new BasicFactory<Long>();
+
+    // Competing consumers process distinct values
+    final WorkQueueExecutable<Integer> queue = WorkQueueExecutable.getQueueByName("work", 10, TimeUnit.SECONDS, pendingFactory, leasedFactory, idFactory);
+    final int numValues = 100;
+    for (int i = 0; i < numValues; ++i) {
+      queue.enqueue(i);
+    }
+    final Map<Integer, Integer> processed = Maps.newConcurrentMap();
+    ExecutorService consumers = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < 4; ++i) {
+      futures.add(consumers.submit(new Runnable() {
+        @Override
+        public void run() {
+          WorkItem<Integer> item;
+          while ((item = queue.lease()) != null) {
+            assertTrue(processed.put(item.getValue(), item.getValue()) == null);
+            assertTrue(queue.acknowledge(item));
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    consumers.shutdown();
+    assertEquals(numValues, processed.size());
+    assertEquals(null, queue.lease());
+
+    // Values re-appear once their lease expires
+    WorkQueueExecutable<String> expiring = WorkQueueExecutable.getQueueByName("expiring", 100, TimeUnit.MILLISECONDS,
+        new BasicFactory<ImmutableList<WorkItem<String>>>(), new BasicFactory<ImmutableSortedMap<Long, WorkItem<String>>>(), idFactory);
+    expiring.enqueue("a", "b");
+    WorkItem<String> first = expiring.lease();
+    assertEquals("a", first.getValue());
+    assertEquals(1, expiring.release(Lists.newArrayList(expiring.lease())));
+    Thread.sleep(200);
+    ImmutableList<WorkItem<String>> retried = expiring.lease(2);
+    assertEquals("a", retried.get(0).getValue());
+    assertEquals(2, retried.get(0).getAttempt());
+    assertEquals("b", retried.get(1).getValue());
+    assertFalse(expiring.acknowledge(first));
+    assertEquals(2, expiring.acknowledge(retried));
+    assertEquals(null, expiring.lease());
+  }
+
+  @Test
+  public void testSegmentedLog() throws Exception {
+    final List<String> segmentRequests = Lists.newArrayList();
+    DriverFactory<ImmutableList<Integer>> segmentFactory = new BasicFactory<ImmutableList<Integer>>() {
+      @Override
+      public Driver<ImmutableList<Integer>> get(String referenceName, ImmutableList<Integer> initialValue) {
+        segmentRequests.add(referenceName);
+        return super.get(referenceName, initialValue);
+      }
+    };
+    DriverFactory<Long> offsetFactory = new BasicFactory<Long>();
+    SegmentedLogExecutable<Integer> log = SegmentedLogExecutable.getLogByName("log", 3, Lists.newArrayList("fast", "slow"), segmentFactory, offsetFactory);
+
+    log.append(0, 1);
+    log.append(2, 3, 4, 5, 6);
+    assertEquals(7, log.tail());
+
+    // Every group reads every value
+    assertEquals(ImmutableList.of(0, 1, 2, 3), log.poll("fast", 4));
+    assertEquals(ImmutableList.of(4, 5, 6), log.poll("fast", 10));
+    assertEquals(ImmutableList.<Integer>of(), log.poll("fast", 10));
+    assertEquals(ImmutableList.of(0, 1), log.poll("slow", 2));
+    assertEquals(0, log.head());
+
+    // Segments are cleared once every group has read past them
+    assertEquals(ImmutableList.of(2, 3, 4), log.poll("slow", 3));
+    assertEquals(3, log.head());
+    assertEquals(ImmutableList.of(3, 4, 5), log.read(0, 3));
+
+    // The truncated segment was evicted, and a read that started before the truncation does not see it as empty
+    assertEquals(1, Collections.frequency(segmentRequests, "log-segment-0"));
+    assertEquals(null, new BaseTransactionExecutor().execute(log.getLog().getReadTransaction(0, 3)));
+    assertEquals(2, Collections.frequency(segmentRequests, "log-segment-0"));
+    assertEquals(ImmutableList.of(5, 6), log.poll("slow", 10));
+    assertEquals(6, log.head());
+
+    log.append(7);
+    assertEquals(ImmutableList.of(7), log.poll("slow", 10));
+    assertEquals(ImmutableList.of(7), log.poll("fast", 10));
+    assertEquals(8, log.offset("fast"));
+  }
+
+  @Test
+  public void testQueueStream() throws Exception {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    final QueueExecutable<Integer> queue = QueueExecutable.getQueueByName("streamed", listFactory, boolFactory);
+    queue.append(0, 1, 2);
+
+    // Values appended while consuming are picked up
+    ExecutorService producer = Executors.newSingleThreadExecutor();
+    Future<?> produced = producer.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 3; i < 20; ++i) {
+          queue.append(i);
+        }
+      }
+    });
+    QueueStream<Integer> stream = queue.stream(4);
+    List<Integer> values = Lists.newArrayList();
+    while (values.size() < 20) {
+      values.add(stream.next());
+    }
+    produced.get();
+    producer.shutdown();
+    stream.close();
+    assertFalse(stream.hasNext());
+    for (int i = 0; i < 20; ++i) {
+      assertEquals(Integer.valueOf(i), values.get(i));
+    }
+    assertEquals(null, queue.read());
+
+    // Values that were not processed stay in the queue
+    queue.append(20, 21, 22);
+    stream = queue.stream(2);
+    assertEquals(Integer.valueOf(20), stream.next());
+    assertEquals(Integer.valueOf(21), stream.next());
+    stream.close();
+    assertEquals(ImmutableList.of(22), queue.read(10));
+
+    // An idle stream blocks until a value is appended to the empty queue
+    queue.pop(1);
+    final QueueStream<Integer> idle = queue.stream(2);
+    ExecutorService consumer = Executors.newSingleThreadExecutor();
+    Future<Integer> next = consumer.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return idle.next();
+      }
+    });
+    Thread.sleep(200);
+    assertFalse(next.isDone());
+    queue.append(23, 24);
+    assertEquals(Integer.valueOf(23), next.get(10, TimeUnit.SECONDS));
+    assertEquals(Integer.valueOf(24), idle.next());
+    consumer.shutdown();
+    idle.close();
+    assertEquals(null, queue.read());
+  }
+
+  @Test
+  public void testQueueMetrics() throws Exception {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    DriverFactory<Long> metricFactory = new BasicFactory<Long>();
+    MeteredQueueExecutable<Integer> queue = MeteredQueueExecutable.getQueueByName("metered", listFactory, boolFactory, metricFactory);
+
+    QueueMetrics metrics = queue.getMetrics();
+    assertEquals(0, metrics.getDepth());
+    assertEquals(0, metrics.getOldestAgeMs());
+
+    queue.append(1, 2, 3);
+    Thread.sleep(100);
+    assertEquals(Integer.valueOf(1), queue.read());
+    queue.append(4);
+    metrics = queue.getMetrics();
+    assertEquals(4, metrics.getEnqueuedCount());
+    assertEquals(0, metrics.getDequeuedCount());
+    assertEquals(4, metrics.getDepth());
+    assertTrue(metrics.getOldestAgeMs() >= 100);
+
+    queue.pop(2);
+    metrics = queue.getMetrics();
+    assertEquals(2, metrics.getDequeuedCount());
+    assertEquals(2, metrics.getDepth());
+    assertTrue(metrics.getOldestAgeMs() >= 100);
+
+    // Once the first batch is popped, the oldest value is the one appended last
+    queue.pop();
+    metrics = queue.getMetrics();
+    assertEquals(1, metrics.getDepth());
+    assertTrue(metrics.getOldestAgeMs() < 100);
+
+    assertEquals(ImmutableList.of(4), queue.read(10));
+    queue.pop(10);
+    metrics = queue.getMetrics();
+    assertEquals(4, metrics.getDequeuedCount());
+    assertEquals(0, metrics.getDepth());
+    assertEquals(0, metrics.getOldestAgeMs());
+  }
+
   @Test
   public void testQueueTransactions() throws InterruptedException {
 
@@ -180,6 +535,210 @@ public class TestQueue extends BaseTestCase {
 
   }
 
+  @Test
+  public void testDriverRegistry() {
+
+    DriverFactory<ImmutableList<Integer>> listFactory = new DriverRegistry<ImmutableList<Integer>>(new NewDriverFactory<ImmutableList<Integer>>());
+    DriverFactory<Boolean> boolFactory = new DriverRegistry<Boolean>(new NewDriverFactory<Boolean>());
+
+    // Looking up the same queue twice returns the same underlying drivers
+    QueueExecutable.getQueueByName("queue", listFactory, boolFactory).append(1);
+    assertEquals(Integer.valueOf(1), QueueExecutable.<Integer>getQueueByName("queue", listFactory, boolFactory).read());
+  }
+
+  @Test
+  public void testDriverRegistryEviction() {
+    DriverRegistry<Integer> shared = new DriverRegistry<Integer>(new SharedStoreFactory<Integer>(), 1);
+    Driver<Integer> a = shared.get("a", 0);
+    shared.get("b", 0);
+    // Drivers of a shared store are rebuilt once evicted
+    assertEquals(1, shared.size());
+    assertTrue(shared.getIfPresent("a") == null);
+    assertFalse(shared.get("a", 0) == a);
+
+    DriverRegistry<Integer> inMemory = new DriverRegistry<Integer>(new NewDriverFactory<Integer>(), 1);
+    Driver<Integer> c = inMemory.get("c", 0);
+    inMemory.get("d", 0);
+    // In-memory drivers are kept beyond the bound, a new one would not see the state of the first
+    assertEquals(2, inMemory.size());
+    assertTrue(inMemory.get("c", 0) == c);
+    inMemory.invalidate("c");
+    assertEquals(1, inMemory.size());
+    assertFalse(inMemory.get("c", 0) == c);
+  }
+
+  @Test
+  public void testPartitionedQueue() throws Exception {
+    DriverFactory<ImmutableList<Stamped<Integer>>> shardFactory = new BasicFactory<ImmutableList<Stamped<Integer>>>();
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+
+    // Global order follows append time across shards
+    PartitionedQueueExecutable<Integer> ordered = PartitionedQueueExecutable.getQueueByName("ordered", 4, true, shardFactory, listFactory, boolFactory);
+    for (int i = 0; i < 8; ++i) {
+      ordered.append(i);
+      Thread.sleep(2);
+    }
+    for (int i = 0; i < 8; ++i) {
+      assertEquals(Integer.valueOf(i), ordered.read());
+      ordered.pop();
+    }
+    assertEquals(null, ordered.read());
+
+    // Once the output is frozen, consumers do not wait for the shard locks held by producers
+    ordered.pop();
+    ordered.append(1, 2);
+    assertEquals(Integer.valueOf(1), ordered.read());
+    final List<Variable<ImmutableList<Stamped<Integer>>>> shards = ordered.getQueue().getShards();
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch released = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    Future<?> holder = threads.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        for (Variable<ImmutableList<Stamped<Integer>>> shard : shards) {
+          shard.driver().lock().writeLock().lock();
+        }
+        locked.countDown();
+        released.await();
+        for (Variable<ImmutableList<Stamped<Integer>>> shard : shards) {
+          shard.driver().lock().writeLock().unlock();
+        }
+        return null;
+      }
+    });
+    locked.await();
+    final PartitionedQueueExecutable<Integer> consumer = ordered;
+    try {
+      threads.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          assertEquals(Integer.valueOf(1), consumer.read());
+          consumer.pop();
+          assertEquals(Integer.valueOf(2), consumer.read());
+          consumer.pop();
+          return null;
+        }
+      }).get(10, TimeUnit.SECONDS);
+    } finally {
+      released.countDown();
+    }
+    holder.get();
+    threads.shutdown();
+
+    // Concurrent producers, values with the same key stay in order
+    final PartitionedQueueExecutable<Integer> queue = PartitionedQueueExecutable.getQueueByName("partitioned", 4, false, shardFactory, listFactory, boolFactory);
+    ExecutorService service = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; ++t) {
+      final int producer = t;
+      service.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 100; ++i) {
+            queue.append(producer, Lists.newArrayList(producer * 1000 + i));
+          }
+        }
+      });
+    }
+    service.shutdown();
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+
+    Map<Integer, Integer> last = Maps.newHashMap();
+    int count = 0;
+    for (Integer value = queue.read(); value != null; value = queue.read()) {
+      Integer previous = last.put(value / 1000, value);
+      assertTrue(previous == null || previous < value);
+      queue.pop();
+      ++count;
+    }
+    assertEquals(400, count);
+  }
+
+  @Test
+  public void testBufferedAppender() throws Exception {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    QueueExecutable<Integer> queue = QueueExecutable.getQueueByName("buffered", listFactory, boolFactory);
+    BufferedAppender<Integer> appender = queue.buffered(20, TimeUnit.MILLISECONDS, 10);
+
+    // An empty append is already complete
+    assertTrue(appender.append(Lists.<Integer>newArrayList()).isDone());
+
+    List<ListenableFuture<Void>> results = Lists.newArrayList();
+    for (int i = 0; i < 25; ++i) {
+      results.add(appender.append(i));
+    }
+    Futures.allAsList(results).get(10, TimeUnit.SECONDS);
+    appender.close();
+
+    for (int i = 0; i < 25; ++i) {
+      assertEquals(Integer.valueOf(i), queue.read());
+      queue.pop();
+    }
+    assertEquals(null, queue.read());
+  }
+
+  @Test
+  public void testBufferedAppenderBatchSize() throws Exception {
+    DriverFactory<ImmutableList<Integer>> listFactory = new BasicFactory<ImmutableList<Integer>>();
+    DriverFactory<Boolean> boolFactory = new BasicFactory<Boolean>();
+    QueueExecutable<Integer> queue = QueueExecutable.getQueueByName("bounded-batches", listFactory, boolFactory);
+    final Variable<ImmutableList<Integer>> input = queue.getQueue().getInput();
+    final List<Integer> batchSizes = Lists.newArrayList();
+    // Only the appender writes the input, so its growth is the size of each batch
+    TransactionExecutor executor = new BaseTransactionExecutor() {
+      @Override
+      public <V> V execute(Transaction<V> transaction) throws Exception {
+        int before = input.driver().persistence().read().size();
+        V result = super.execute(transaction);
+        batchSizes.add(input.driver().persistence().read().size() - before);
+        return result;
+      }
+    };
+    BufferedAppender<Integer> appender = new BufferedAppender<Integer>(queue.getQueue(), executor, 1, TimeUnit.HOURS, 10);
+
+    // A large append, and appends piling up, are split into batches of at most 10 values
+    List<Integer> values = Lists.newArrayList();
+    for (int i = 0; i < 25; ++i) {
+      values.add(i);
+    }
+    List<ListenableFuture<Void>> results = Lists.newArrayList();
+    results.add(appender.append(values));
+    for (int i = 25; i < 37; i += 4) {
+      results.add(appender.append(i, i + 1, i + 2, i + 3));
+    }
+    appender.close();
+    Futures.allAsList(results).get(10, TimeUnit.SECONDS);
+
+    int total = 0;
+    for (int batchSize : batchSizes) {
+      assertTrue(batchSizes.toString(), batchSize > 0 && batchSize <= 10);
+      total += batchSize;
+    }
+    assertEquals(37, total);
+    for (int i = 0; i < 37; ++i) {
+      assertEquals(Integer.valueOf(i), queue.read());
+      queue.pop();
+    }
+  }
+
+  private static class NewDriverFactory<T> implements DriverFactory<T> {
+
+    @Override
+    public Driver<T> get(String referenceName, T initialValue) {
+      return new InMemoryDriver<T>(initialValue);
+    }
+  }
+
+  // Stands in for drivers of a store shared between drivers, which do not use in-memory locks
+  private static class SharedStoreFactory<T> implements DriverFactory<T> {
+
+    @Override
+    public Driver<T> get(String referenceName, T initialValue) {
+      return new BaseDriver<T>(new InMemoryPersistence<T>(initialValue), new BaseReadWriteLock(null, null));
+    }
+  }
+
   private static class BasicFactory<T> implements DriverFactory<T> {
 
     private Map<String, Driver<T>> drivers = Maps.newHashMap();
@@ -0,0 +1,74 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.state;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.state.ChangeWatch;
+import com.liveramp.megadesk.base.state.InMemoryLocal;
+import com.liveramp.megadesk.base.transaction.BaseDependency;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.transaction.Write;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestChangeWatch extends BaseTestCase {
+
+  @Test
+  public void testMain() throws Exception {
+    final TransactionExecutor executor = new BaseTransactionExecutor();
+    final Variable<Integer> variable = new InMemoryLocal<Integer>(0);
+    ChangeWatch watch = new ChangeWatch(BaseDependency.builder().reads(variable).build());
+
+    assertTrue(watch.isWatchable());
+    assertFalse(watch.poll());
+    assertFalse(watch.await(10, TimeUnit.MILLISECONDS));
+
+    executor.execute(new Write<Integer>(variable, 1));
+    assertTrue(watch.poll());
+    assertFalse(watch.poll());
+
+    // Wakes up on a change committed by another thread
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    service.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(50);
+          executor.execute(new Write<Integer>(variable, 2));
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    assertTrue(watch.await(10, TimeUnit.SECONDS));
+    service.shutdown();
+
+    // No notification once closed
+    watch.close();
+    executor.execute(new Write<Integer>(variable, 3));
+    assertFalse(watch.poll());
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.state.persistence;
+
+import java.io.IOException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import com.liveramp.commons.util.serialization.SerializationHandler;
+import com.liveramp.megadesk.base.state.BaseVariable;
+import com.liveramp.megadesk.base.state.Name;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.core.state.PersistenceTransaction;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.recipes.state.OffHeapDriver;
+import com.liveramp.megadesk.recipes.transaction.Composition;
+import com.liveramp.megadesk.recipes.transaction.Read;
+import com.liveramp.megadesk.recipes.transaction.Write;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestOffHeapPersistence extends BaseTestCase {
+
+  private final SerializationHandler<String> serializer = new StringSerializationHandler();
+
+  @Test
+  public void testNullValues() {
+    OffHeapPersistence<String> persistence = new OffHeapPersistence<String>(serializer);
+    assertNull(persistence.read());
+    assertEquals(0, persistence.size());
+
+    persistence.write("value");
+    assertEquals("value", persistence.read());
+    assertEquals(5, persistence.size());
+
+    persistence.write(null);
+    assertNull(persistence.read());
+    assertEquals(0, persistence.size());
+
+    // An empty value is not null
+    persistence.write("");
+    assertEquals("", persistence.read());
+  }
+
+  @Test
+  public void testBufferGrowth() {
+    OffHeapPersistence<String> persistence = new OffHeapPersistence<String>(serializer, "a");
+    for (int length : new int[]{10, 64, 65, 1000, 100000, 3}) {
+      String value = Strings.repeat("x", length);
+      persistence.write(value);
+      assertEquals(value, persistence.read());
+      assertEquals(length, persistence.size());
+    }
+
+    assertEquals(64, OffHeapPersistence.capacity(1));
+    assertEquals(64, OffHeapPersistence.capacity(64));
+    assertEquals(128, OffHeapPersistence.capacity(65));
+    assertEquals(1 << 30, OffHeapPersistence.capacity(1 << 30));
+    // Past the largest power of two, the exact size is used instead of overflowing
+    assertEquals((1 << 30) + 1, OffHeapPersistence.capacity((1 << 30) + 1));
+    assertEquals(Integer.MAX_VALUE, OffHeapPersistence.capacity(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testTransactions() throws Exception {
+    OffHeapPersistence<String> persistence = new OffHeapPersistence<String>(serializer, "before");
+    PersistenceTransaction transaction = persistence.newTransaction();
+    persistence.writeInTransaction(transaction, "after");
+    // Writes are only visible once committed
+    assertEquals("before", persistence.read());
+    transaction.commit();
+    assertEquals("after", persistence.read());
+
+    TransactionExecutor executor = new BaseTransactionExecutor();
+    Variable<String> v1 = new BaseVariable<String>(new Name<String>("v1"), new OffHeapDriver<String>(serializer, "a"));
+    Variable<String> v2 = new BaseVariable<String>(new Name<String>("v2"), new OffHeapDriver<String>(serializer));
+    assertNull(executor.execute(new Read<String>(v2)));
+
+    executor.execute(new Composition(
+        new Write<String>(v1, Strings.repeat("b", 1000)),
+        new Write<String>(v2, "c")
+    ));
+    assertEquals(Strings.repeat("b", 1000), executor.execute(new Read<String>(v1)));
+    assertEquals("c", executor.execute(new Read<String>(v2)));
+
+    executor.execute(new Write<String>(v1, null));
+    assertNull(executor.execute(new Read<String>(v1)));
+  }
+
+  private static class StringSerializationHandler implements SerializationHandler<String> {
+
+    @Override
+    public byte[] serialize(String value) throws IOException {
+      return value == null ? null : value.getBytes(Charsets.UTF_8);
+    }
+
+    @Override
+    public String deserialize(byte[] bytes) throws IOException {
+      return bytes == null ? null : new String(bytes, Charsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.transaction;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.state.BaseDriver;
+import com.liveramp.megadesk.base.state.BaseReadWriteLock;
+import com.liveramp.megadesk.base.state.InMemoryLocal;
+import com.liveramp.megadesk.base.state.InMemoryLongPersistence;
+import com.liveramp.megadesk.base.state.Local;
+import com.liveramp.megadesk.base.transaction.BaseAsyncTransactionExecutor;
+import com.liveramp.megadesk.core.state.AsyncLock;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.AsyncTransactionExecutor;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestAsyncTransactionExecutor extends BaseTestCase {
+
+  @Test
+  public void testAsyncLocks() throws Exception {
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    AsyncTransactionExecutor executor = new BaseAsyncTransactionExecutor(threads);
+
+    Variable<Long> v1 = new Local<Long>(new BaseDriver<Long>(new InMemoryLongPersistence(), new BaseReadWriteLock(new SemaphoreLock(), new SemaphoreLock())));
+    Variable<Long> v2 = new Local<Long>(new BaseDriver<Long>(new InMemoryLongPersistence(), new BaseReadWriteLock(new SemaphoreLock(), new SemaphoreLock())));
+
+    List<ListenableFuture<Void>> results = Lists.newArrayList();
+    for (int i = 0; i < 100; ++i) {
+      results.add(executor.executeAsync(new Composition(new IncrementLong(v1), new Copy<Long>(v1, v2))));
+    }
+    Futures.allAsList(results).get();
+
+    assertEquals(100, (long)executor.executeAsync(new Read<Long>(v1)).get());
+    assertEquals(100, (long)executor.executeAsync(new Read<Long>(v2)).get());
+    threads.shutdown();
+  }
+
+  @Test
+  public void testSynchronousLocks() throws Exception {
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    AsyncTransactionExecutor executor = new BaseAsyncTransactionExecutor(threads);
+
+    Variable<Long> v1 = new InMemoryLocal<Long>(0L);
+
+    List<ListenableFuture<Long>> results = Lists.newArrayList();
+    for (int i = 0; i < 100; ++i) {
+      results.add(executor.executeAsync(new IncrementLong(v1)));
+    }
+    Futures.allAsList(results).get();
+
+    assertEquals(100, (long)executor.executeAsync(new Read<Long>(v1)).get());
+    threads.shutdown();
+  }
+
+  // Not bound to threads, waiters are completed by the thread that unlocks
+  private static class SemaphoreLock implements AsyncLock {
+
+    private final Semaphore semaphore = new Semaphore(1);
+    private final List<SettableFuture<Void>> waiters = Lists.newLinkedList();
+
+    @Override
+    public ListenableFuture<Void> lockAsync() {
+      synchronized (waiters) {
+        if (waiters.isEmpty() && semaphore.tryAcquire()) {
+          return Futures.immediateFuture(null);
+        }
+        SettableFuture<Void> waiter = SettableFuture.create();
+        waiters.add(waiter);
+        return waiter;
+      }
+    }
+
+    @Override
+    public ListenableFuture<Void> unlockAsync() {
+      SettableFuture<Void> next;
+      synchronized (waiters) {
+        if (waiters.isEmpty()) {
+          semaphore.release();
+          return Futures.immediateFuture(null);
+        }
+        next = waiters.remove(0);
+      }
+      // Ownership is handed over to the next waiter
+      next.set(null);
+      return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public void lock() {
+      Futures.getUnchecked(lockAsync());
+    }
+
+    @Override
+    public boolean tryLock() {
+      synchronized (waiters) {
+        return waiters.isEmpty() && semaphore.tryAcquire();
+      }
+    }
+
+    @Override
+    public void unlock() {
+      unlockAsync();
+    }
+  }
+}
@@ -18,13 +18,18 @@ package com.liveramp.megadesk.recipes.transaction;
 
 import org.junit.Test;
 
+import com.liveramp.megadesk.base.state.InMemoryDoubleDriver;
 import com.liveramp.megadesk.base.state.InMemoryLocal;
+import com.liveramp.megadesk.base.state.InMemoryLongDriver;
+import com.liveramp.megadesk.base.state.InMemoryLongPersistence;
+import com.liveramp.megadesk.base.state.Local;
 import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
 import com.liveramp.megadesk.core.state.Variable;
 import com.liveramp.megadesk.core.transaction.TransactionExecutor;
 import com.liveramp.megadesk.test.BaseTestCase;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class TestComposition extends BaseTestCase {
 
@@ -48,4 +53,37 @@ public class TestComposition extends BaseTestCase {
     assertEquals(3, (long)executor.execute(new Read<Long>(v2)));
     assertEquals(6, (long)executor.execute(new Read<Long>(v3)));
   }
+
+  @Test
+  public void testPrimitives() throws Exception {
+    TransactionExecutor executor = new BaseTransactionExecutor();
+
+    Variable<Long> v1 = new Local<Long>(new InMemoryLongDriver());
+    Variable<Long> v2 = new Local<Long>(new InMemoryLongDriver(10L));
+    Variable<Double> v3 = new Local<Double>(new InMemoryDoubleDriver());
+
+    executor.execute(new Composition(
+        new IncrementLong(v1, 5),
+        new Copy<Long>(v1, v2),
+        new MaxLong(v2, 3),
+        new AddDouble(v3, 0.5),
+        new MaxDouble(v3, 1.5)
+    ));
+
+    assertEquals(5, (long)executor.execute(new Read<Long>(v1)));
+    assertEquals(5, (long)executor.execute(new Read<Long>(v2)));
+    assertEquals(1.5, executor.execute(new Read<Double>(v3)), 0.0);
+  }
+
+  @Test
+  public void testPrimitiveNull() throws Exception {
+    InMemoryLongPersistence persistence = new InMemoryLongPersistence(1L);
+    try {
+      persistence.write(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    assertEquals(1L, persistence.readLong());
+  }
 }
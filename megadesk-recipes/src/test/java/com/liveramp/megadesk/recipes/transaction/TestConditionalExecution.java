@@ -0,0 +1,102 @@
+/**
+ *  Copyright 2014 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.megadesk.recipes.transaction;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.liveramp.megadesk.base.state.InMemoryLocal;
+import com.liveramp.megadesk.base.state.Param;
+import com.liveramp.megadesk.base.transaction.BaseTransactionExecutor;
+import com.liveramp.megadesk.base.transaction.Bind;
+import com.liveramp.megadesk.core.state.Variable;
+import com.liveramp.megadesk.core.transaction.Condition;
+import com.liveramp.megadesk.core.transaction.Context;
+import com.liveramp.megadesk.core.transaction.TransactionExecutionResult;
+import com.liveramp.megadesk.core.transaction.TransactionExecutor;
+import com.liveramp.megadesk.test.BaseTestCase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestConditionalExecution extends BaseTestCase {
+
+  @Test
+  public void testMain() throws Exception {
+    final TransactionExecutor executor = new BaseTransactionExecutor();
+    final Variable<Long> source = new InMemoryLocal<Long>(0L);
+    final Variable<Long> destination = new InMemoryLocal<Long>(0L);
+    final Condition positive = new Condition() {
+      @Override
+      public boolean holds(Context context) {
+        return context.read(source) > 0;
+      }
+    };
+
+    // Times out while the condition does not hold
+    TransactionExecutionResult<Long> result = executor.executeWhen(new Copy<Long>(source, destination), positive, 10, TimeUnit.MILLISECONDS);
+    assertFalse(result.executed());
+    assertEquals(0L, (long)executor.execute(new Read<Long>(destination)));
+
+    // Wakes up once another thread makes the condition hold
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    Future<Long> copy = service.submit(new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return executor.executeWhen(new Copy<Long>(source, destination), positive);
+      }
+    });
+    Thread.sleep(50);
+    executor.execute(new Write<Long>(source, 7L));
+    // Well within the 1s after which a waiting execution re-evaluates its condition anyway, so this only
+    // passes if the write notified it
+    copy.get(500, TimeUnit.MILLISECONDS);
+    service.shutdown();
+
+    assertEquals(7L, (long)executor.execute(new Read<Long>(destination)));
+  }
+
+  @Test
+  public void testBinding() throws Exception {
+    TransactionExecutor executor = new BaseTransactionExecutor();
+    Variable<Long> counter = new InMemoryLocal<Long>(0L);
+    final Param<Long> argument = new Param<Long>(0);
+    Alter<Long> increment = new Alter<Long>(argument) {
+      @Override
+      protected Long alter(Long value) {
+        return value + 1;
+      }
+    };
+    Condition belowTwo = new Condition() {
+      @Override
+      public boolean holds(Context context) {
+        return context.read(argument) < 2;
+      }
+    };
+
+    assertTrue(executor.executeWhen(increment, new Bind(counter), belowTwo, 10, TimeUnit.MILLISECONDS).executed());
+    assertTrue(executor.executeWhen(increment, new Bind(counter), belowTwo, 10, TimeUnit.MILLISECONDS).executed());
+    assertFalse(executor.executeWhen(increment, new Bind(counter), belowTwo, 10, TimeUnit.MILLISECONDS).executed());
+    assertEquals(2L, (long)executor.execute(new Read<Long>(counter)));
+  }
+}